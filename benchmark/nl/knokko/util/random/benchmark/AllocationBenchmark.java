@@ -0,0 +1,70 @@
+package nl.knokko.util.random.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import nl.knokko.util.random.PseudoRandom;
+import nl.knokko.util.random.Random;
+
+/**
+ * Measures how many bytes the configurations of PseudoRandom allocate per generated value, using the
+ * allocation counter of the current thread (com.sun.management.ThreadMXBean). After the warm-up, every
+ * configuration should allocate 0 bytes per value.
+ *
+ * The first argument is the number of values per measurement (default 2^16).
+ * @author knokko
+ *
+ */
+public class AllocationBenchmark {
+
+	private static final int ROUNDS = 3;
+
+	/**
+	 * The sum of all generated values, which is printed at the end so that the JIT can't remove the loops
+	 */
+	private static long sink;
+
+	public static void main(String[] args) {
+		int amount = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 16;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.out.println("This JVM can't measure the allocated memory of threads");
+			return;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long threadId = Thread.currentThread().getId();
+
+		PseudoRandom.Configuration[] configurations = {
+				PseudoRandom.Configuration.LEGACY, PseudoRandom.Configuration.MEDIUM, PseudoRandom.Configuration.LIGHT
+		};
+		String[] names = { "LEGACY", "MEDIUM", "LIGHT" };
+		for (int round = 1; round <= ROUNDS; round++) {
+			System.out.println("Round " + round + " (bytes allocated per value):");
+			for (int index = 0; index < configurations.length; index++) {
+				Random random = new PseudoRandom(12345L, configurations[index]);
+
+				// The first round also warms up the JIT
+				long startBytes = threads.getThreadAllocatedBytes(threadId);
+				for (int counter = 0; counter < amount; counter++) {
+					sink += random.next() ? 1 : 0;
+				}
+				long nextBytes = threads.getThreadAllocatedBytes(threadId) - startBytes;
+
+				startBytes = threads.getThreadAllocatedBytes(threadId);
+				for (int counter = 0; counter < amount; counter++) {
+					sink += random.nextInt();
+				}
+				long intBytes = threads.getThreadAllocatedBytes(threadId) - startBytes;
+
+				startBytes = threads.getThreadAllocatedBytes(threadId);
+				for (int counter = 0; counter < amount; counter++) {
+					sink += random.nextLong();
+				}
+				long longBytes = threads.getThreadAllocatedBytes(threadId) - startBytes;
+
+				System.out.printf("  %-8s next() %8.3f, nextInt() %8.3f, nextLong() %8.3f%n", names[index],
+						nextBytes / (double) amount, intBytes / (double) amount, longBytes / (double) amount);
+			}
+		}
+		System.out.println("Checksum: " + sink);
+	}
+}
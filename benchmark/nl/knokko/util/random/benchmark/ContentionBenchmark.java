@@ -0,0 +1,85 @@
+package nl.knokko.util.random.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nl.knokko.util.random.ConcurrentRandom;
+import nl.knokko.util.random.PseudoRandom;
+import nl.knokko.util.random.Random;
+
+/**
+ * Compares the throughput of a ConcurrentRandom with a single PseudoRandom that is shared by all threads
+ * behind a synchronized block, for 1 to 64 threads. Both use the LIGHT configuration. The scaling of the
+ * ConcurrentRandom can only be seen on a machine with multiple cores.
+ *
+ * The first argument is the total number of nextInt() calls per measurement, which are divided over the
+ * threads (default 2^20).
+ * @author knokko
+ *
+ */
+public class ContentionBenchmark {
+
+	private static final int[] THREAD_COUNTS = { 1, 2, 4, 8, 16, 32, 64 };
+
+	/**
+	 * The sum of all generated ints, which is printed at the end so that the JIT can't remove the loops
+	 */
+	private static final AtomicLong sink = new AtomicLong();
+
+	public static void main(String[] args) throws InterruptedException {
+		int totalAmount = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+		System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+		System.out.println("Threads    synchronized PseudoRandom    ConcurrentRandom (million calls per second)");
+
+		// Warm up the JIT
+		measure(new PseudoRandom(1L, PseudoRandom.Configuration.LIGHT), true, 2, totalAmount);
+		measure(new ConcurrentRandom(new PseudoRandom(2L, PseudoRandom.Configuration.LIGHT), PseudoRandom.Configuration.LIGHT), false, 2, totalAmount);
+
+		for (int threadCount : THREAD_COUNTS) {
+			double locked = measure(new PseudoRandom(1L, PseudoRandom.Configuration.LIGHT), true, threadCount, totalAmount);
+			double striped = measure(new ConcurrentRandom(new PseudoRandom(2L, PseudoRandom.Configuration.LIGHT),
+					PseudoRandom.Configuration.LIGHT), false, threadCount, totalAmount);
+			System.out.printf("%7d    %25.3f    %16.3f%n", threadCount, locked, striped);
+		}
+		System.out.println("Checksum: " + sink.get());
+	}
+
+	/**
+	 * @param random The random that all threads share
+	 * @param lock true if the threads should synchronize on the random for every call
+	 * @return the number of million nextInt() calls per second
+	 */
+	private static double measure(Random random, boolean lock, int threadCount, int totalAmount) throws InterruptedException {
+		int amount = Math.max(1, totalAmount / threadCount);
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[threadCount];
+		for (int index = 0; index < threadCount; index++) {
+			threads[index] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException interrupted) {
+					return;
+				}
+				long sum = 0;
+				for (int counter = 0; counter < amount; counter++) {
+					if (lock) {
+						synchronized (random) {
+							sum += random.nextInt();
+						}
+					} else {
+						sum += random.nextInt();
+					}
+				}
+				sink.addAndGet(sum);
+			});
+			threads[index].start();
+		}
+		long startTime = System.nanoTime();
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		return (double) amount * threadCount / seconds / 1e6;
+	}
+}
@@ -0,0 +1,117 @@
+package nl.knokko.util.random.benchmark;
+
+import nl.knokko.util.random.JavaRandom;
+import nl.knokko.util.random.PseudoRandom;
+import nl.knokko.util.random.Random;
+import nl.knokko.util.random.distribution.Exponential;
+import nl.knokko.util.random.distribution.Gaussian;
+
+/**
+ * Compares the speed of the ziggurat samplers of Gaussian and Exponential with java.util.Random.nextGaussian
+ * and the Box-Muller transform, and prints the first moments of the samplers as a sanity check. Every
+ * measurement is repeated a few times, so the later rounds show the speed after the JIT has warmed up.
+ *
+ * Run it with the compiled library on the classpath. The first argument is the number of samples per
+ * measurement (default 2^20).
+ * @author knokko
+ *
+ */
+public class DistributionBenchmark {
+
+	private static final int ROUNDS = 5;
+
+	/**
+	 * The sum of all generated samples, which is printed at the end so that the JIT can't remove the loops
+	 */
+	private static double sink;
+
+	public static void main(String[] args) {
+		int amount = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+		java.util.Random javaRandom = new java.util.Random(1);
+		Random wordRandom = new JavaRandom(new java.util.Random(1), true);
+		Random light = new PseudoRandom(1L, PseudoRandom.Configuration.LIGHT);
+		double[] buffer = new double[amount];
+
+		printMoments("Gaussian.fill", wordRandom, buffer, false);
+		printMoments("Exponential.fill", wordRandom, buffer, true);
+
+		for (int round = 1; round <= ROUNDS; round++) {
+			System.out.println("Round " + round + " (million samples per second):");
+
+			long startTime = System.nanoTime();
+			for (int index = 0; index < amount; index++) {
+				sink += javaRandom.nextGaussian();
+			}
+			print("java.util.Random.nextGaussian", amount, startTime);
+
+			startTime = System.nanoTime();
+			for (int index = 0; index < amount; index++) {
+				sink += Gaussian.next(wordRandom);
+			}
+			print("Gaussian.next (JavaRandom)", amount, startTime);
+
+			startTime = System.nanoTime();
+			Gaussian.fill(wordRandom, buffer, 0, amount);
+			print("Gaussian.fill (JavaRandom)", amount, startTime);
+
+			startTime = System.nanoTime();
+			for (int index = 0; index < amount; index++) {
+				sink += boxMuller(wordRandom);
+			}
+			print("Box-Muller (JavaRandom)", amount, startTime);
+
+			startTime = System.nanoTime();
+			Exponential.fill(wordRandom, buffer, 0, amount);
+			print("Exponential.fill (JavaRandom)", amount, startTime);
+
+			// PseudoRandom is much slower per bit, so fewer samples are enough
+			int lightAmount = Math.max(1, amount / 64);
+			startTime = System.nanoTime();
+			for (int index = 0; index < lightAmount; index++) {
+				sink += Gaussian.next(light);
+			}
+			print("Gaussian.next (LIGHT)", lightAmount, startTime);
+
+			startTime = System.nanoTime();
+			for (int index = 0; index < lightAmount; index++) {
+				sink += boxMuller(light);
+			}
+			print("Box-Muller (LIGHT)", lightAmount, startTime);
+		}
+		System.out.println("Checksum: " + sink);
+	}
+
+	private static double boxMuller(Random random) {
+		double u = random.nextDouble();
+		double v = 1.0 - random.nextDouble();
+		return Math.sqrt(-2 * Math.log(v)) * Math.cos(2 * Math.PI * u);
+	}
+
+	private static void print(String name, int amount, long startTime) {
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		System.out.printf("  %-32s %8.2f%n", name, amount / seconds / 1e6);
+	}
+
+	private static void printMoments(String name, Random random, double[] buffer, boolean exponential) {
+		if (exponential) {
+			Exponential.fill(random, buffer, 0, buffer.length);
+		} else {
+			Gaussian.fill(random, buffer, 0, buffer.length);
+		}
+		double mean = 0;
+		for (double value : buffer) {
+			mean += value;
+		}
+		mean /= buffer.length;
+		double variance = 0, skewness = 0;
+		for (double value : buffer) {
+			double difference = value - mean;
+			variance += difference * difference;
+			skewness += difference * difference * difference;
+		}
+		variance /= buffer.length;
+		skewness = skewness / buffer.length / Math.pow(variance, 1.5);
+		System.out.printf("%s: mean %.4f (expected %.1f), variance %.4f (expected 1), skewness %.4f (expected %.1f)%n",
+				name, mean, exponential ? 1.0 : 0.0, variance, skewness, exponential ? 2.0 : 0.0);
+	}
+}
@@ -0,0 +1,124 @@
+package nl.knokko.util.random.benchmark;
+
+import nl.knokko.util.random.FrugalSampler;
+import nl.knokko.util.random.JavaRandom;
+import nl.knokko.util.random.PseudoRandom;
+import nl.knokko.util.random.Random;
+
+/**
+ * Reports the number of random bits that FrugalSampler consumes per sample, using its own counters, and
+ * compares it with Random.nextInt(int), whose bits are counted by a wrapper around its source. It also
+ * measures the bits of a 52-card shuffle and of 3d6, and the time per nextInt(1000000) with an expensive
+ * source (PseudoRandom with the LEGACY configuration).
+ *
+ * The first argument is the number of samples per bound (default 2^20).
+ * @author knokko
+ *
+ */
+public class FrugalSamplerBenchmark {
+
+	private static final int[] BOUNDS = { 2, 6, 52, 1000, 1000000, (1 << 30) + 1, Integer.MAX_VALUE };
+
+	/**
+	 * The sum of all generated ints, which is printed at the end so that the JIT can't remove the loops
+	 */
+	private static long sink;
+
+	public static void main(String[] args) {
+		int amount = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+
+		System.out.println("Bits consumed per sample:");
+		System.out.printf("  %12s %12s %14s %16s%n", "bound", "log2(bound)", "FrugalSampler", "Random.nextInt");
+		for (int bound : BOUNDS) {
+			FrugalSampler sampler = new FrugalSampler(new JavaRandom(new java.util.Random(bound), true));
+			for (int counter = 0; counter < amount; counter++) {
+				sink += sampler.nextInt(bound);
+			}
+			CountingRandom counting = new CountingRandom(new JavaRandom(new java.util.Random(bound), true));
+			for (int counter = 0; counter < amount; counter++) {
+				sink += counting.nextInt(bound);
+			}
+			System.out.printf("  %12d %12.3f %14.3f %16.3f%n", bound, Math.log(bound) / Math.log(2),
+					sampler.getConsumedBits() / (double) sampler.getSamples(), counting.consumedBits / (double) amount);
+		}
+
+		int shuffles = Math.max(1, amount / 64);
+		int[] deck = new int[52];
+		FrugalSampler deckSampler = new FrugalSampler(new JavaRandom(new java.util.Random(52), true));
+		for (int counter = 0; counter < shuffles; counter++) {
+			deckSampler.shuffle(deck);
+		}
+		double log2Factorial = 0;
+		for (int factor = 2; factor <= 52; factor++) {
+			log2Factorial += Math.log(factor) / Math.log(2);
+		}
+		System.out.printf("52-card shuffle: %.2f bits per shuffle (log2(52!) = %.2f)%n",
+				deckSampler.getConsumedBits() / (double) shuffles, log2Factorial);
+
+		FrugalSampler diceSampler = new FrugalSampler(new JavaRandom(new java.util.Random(3), true));
+		long sum = 0;
+		for (int counter = 0; counter < amount; counter++) {
+			sum += diceSampler.rollDice(3, 6);
+		}
+		System.out.printf("3d6: %.3f bits per roll (log2(216) = %.3f), mean %.3f (expected 10.5)%n",
+				diceSampler.getConsumedBits() / (double) amount, Math.log(216) / Math.log(2), sum / (double) amount);
+
+		// PseudoRandom LEGACY is slow, so fewer samples are enough
+		int slowAmount = Math.max(1, amount / 128);
+		Random legacy = new PseudoRandom(7L, PseudoRandom.Configuration.LEGACY);
+		FrugalSampler legacySampler = new FrugalSampler(new PseudoRandom(7L, PseudoRandom.Configuration.LEGACY));
+		for (int round = 0; round < 2; round++) {
+
+			// The first round warms up the JIT
+			long startTime = System.nanoTime();
+			for (int counter = 0; counter < slowAmount; counter++) {
+				sink += legacy.nextInt(1000000);
+			}
+			double nextIntTime = (System.nanoTime() - startTime) / 1000.0 / slowAmount;
+			startTime = System.nanoTime();
+			for (int counter = 0; counter < slowAmount; counter++) {
+				sink += legacySampler.nextInt(1000000);
+			}
+			double samplerTime = (System.nanoTime() - startTime) / 1000.0 / slowAmount;
+			if (round == 1) {
+				System.out.printf("nextInt(1000000) with LEGACY: Random %.2f us, FrugalSampler %.2f us%n", nextIntTime, samplerTime);
+			}
+		}
+		System.out.println("Checksum: " + sink);
+	}
+
+	/**
+	 * Counts the bits that are taken from another random
+	 */
+	private static class CountingRandom extends Random {
+
+		private final Random source;
+		private long consumedBits;
+
+		CountingRandom(Random source) {
+			this.source = source;
+		}
+
+		@Override
+		public boolean next() {
+			consumedBits++;
+			return source.next();
+		}
+
+		@Override
+		public long nextBits(int amount) {
+			consumedBits += amount;
+			return source.nextBits(amount);
+		}
+
+		@Override
+		public boolean isPseudo() {
+			return source.isPseudo();
+		}
+
+		@Override
+		public Random clone() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package nl.knokko.util.random.benchmark;
+
+import java.util.Arrays;
+
+import nl.knokko.util.random.IntMatrixRandom;
+import nl.knokko.util.random.JavaRandom;
+import nl.knokko.util.random.Random;
+
+/**
+ * Compares the output modes of IntMatrixRandom. The first part runs a few simple statistical tests on
+ * 2^20 ints of every generator (java.util.Random is included as reference):
+ * <ul>
+ * <li>the chi-square statistic of the byte frequencies (255 degrees of freedom, so about 255 +- 23)</li>
+ * <li>the largest deviation of the frequency of a bit position from 1/2, as z-score</li>
+ * <li>the correlation between consecutive ints</li>
+ * <li>the number of duplicate ints, which should be close to n^2 / 2^33 (the birthday paradox)</li>
+ * </ul>
+ * The high yield mode is tested with seeded matrices and with matrices that are initially 0.
+ *
+ * The second part measures the time per nextInt() of both output modes for several matrix lengths.
+ * @author knokko
+ *
+ */
+public class IntMatrixBenchmark {
+
+	private static final int SAMPLES = 1 << 20;
+
+	/**
+	 * The sum of all generated ints, which is printed at the end so that the JIT can't remove the loops
+	 */
+	private static long sink;
+
+	public static void main(String[] args) {
+		printStatistics("java.util.Random", new JavaRandom(new java.util.Random(5), true), SAMPLES);
+		for (int length : new int[] { 2, 3, 4, 8, 16, 64 }) {
+			printStatistics("HIGH_YIELD_V1 length " + length,
+					new IntMatrixRandom(length, 777L + length, IntMatrixRandom.OutputMode.HIGH_YIELD_V1), SAMPLES);
+			printStatistics("HIGH_YIELD_V1 zero " + length,
+					new IntMatrixRandom(length, new int[length * length], 0, IntMatrixRandom.OutputMode.HIGH_YIELD_V1), SAMPLES);
+		}
+
+		// The classic mode is too slow for 2^20 ints with larger matrices
+		printStatistics("CLASSIC length 2", new IntMatrixRandom(2, 779L), SAMPLES);
+		printStatistics("CLASSIC length 4", new IntMatrixRandom(4, 781L), SAMPLES);
+		printStatistics("CLASSIC length 8", new IntMatrixRandom(8, 785L), SAMPLES / 16);
+
+		System.out.println();
+		for (int length : new int[] { 2, 4, 8, 16, 32, 64, 128, 256 }) {
+			double classic = measure(length, IntMatrixRandom.OutputMode.CLASSIC);
+			double highYield = measure(length, IntMatrixRandom.OutputMode.HIGH_YIELD_V1);
+			System.out.printf("length %3d: CLASSIC %12.1f ns per int, HIGH_YIELD_V1 %8.1f ns per int (%.0fx)%n",
+					length, classic, highYield, classic / highYield);
+		}
+		System.out.println("Checksum: " + sink);
+	}
+
+	/**
+	 * @return the average number of nanoseconds per nextInt() call
+	 */
+	private static double measure(int length, IntMatrixRandom.OutputMode mode) {
+		IntMatrixRandom random = new IntMatrixRandom(length, 1L, mode);
+		double workPerInt = mode == IntMatrixRandom.OutputMode.CLASSIC ? (double) length * length * length : length;
+		int amount = (int) Math.min(5_000_000, Math.max(4, 1e8 / workPerInt));
+
+		// Warm up the JIT
+		for (int counter = 0; counter < Math.min(amount, 100_000); counter++) {
+			sink += random.nextInt();
+		}
+		long startTime = System.nanoTime();
+		for (int counter = 0; counter < amount; counter++) {
+			sink += random.nextInt();
+		}
+		return (System.nanoTime() - startTime) / (double) amount;
+	}
+
+	private static void printStatistics(String name, Random random, int amount) {
+		long[] byteCounts = new long[256];
+		long[] bitCounts = new long[32];
+		int[] values = new int[amount];
+		double sum = 0, sumSquares = 0, sumProducts = 0, previous = 0;
+		for (int index = 0; index < amount; index++) {
+			int value = random.nextInt();
+			values[index] = value;
+			for (int byteIndex = 0; byteIndex < 4; byteIndex++) {
+				byteCounts[(value >>> (8 * byteIndex)) & 255]++;
+			}
+			for (int bit = 0; bit < 32; bit++) {
+				bitCounts[bit] += (value >>> bit) & 1;
+			}
+			double fraction = (value & 0xFFFFFFFFL) / 4294967296.0;
+			if (index > 0) {
+				sumProducts += previous * fraction;
+			}
+			sum += fraction;
+			sumSquares += fraction * fraction;
+			previous = fraction;
+		}
+
+		double expectedByteCount = 4.0 * amount / 256;
+		double chiSquare = 0;
+		for (long count : byteCounts) {
+			chiSquare += (count - expectedByteCount) * (count - expectedByteCount) / expectedByteCount;
+		}
+		double maxBitZ = 0;
+		for (long count : bitCounts) {
+			maxBitZ = Math.max(maxBitZ, Math.abs(count - amount / 2.0) / Math.sqrt(amount / 4.0));
+		}
+		double mean = sum / amount;
+		double variance = sumSquares / amount - mean * mean;
+		double correlation = (sumProducts / (amount - 1) - mean * mean) / variance;
+
+		Arrays.sort(values);
+		int duplicates = 0;
+		for (int index = 1; index < amount; index++) {
+			if (values[index] == values[index - 1]) {
+				duplicates++;
+			}
+		}
+		System.out.printf("%-26s byte chi2 %6.1f, max bit z %.2f, serial correlation %+.5f, duplicates %d (expected %.0f)%n",
+				name, chiSquare, maxBitZ, correlation, duplicates, (double) amount * amount / 8589934592.0);
+	}
+}
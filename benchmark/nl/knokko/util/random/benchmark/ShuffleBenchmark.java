@@ -0,0 +1,90 @@
+package nl.knokko.util.random.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import nl.knokko.util.random.JavaRandom;
+import nl.knokko.util.random.distribution.Sampling;
+
+/**
+ * Compares Sampling.shuffle with Collections.shuffle. Both get their random numbers from a java.util.Random
+ * (Sampling through a word based JavaRandom), which counts the 32-bit values it generates, so the benchmark
+ * reports both the time per element and the number of 32-bit values that were taken per element. The
+ * shuffles of ArrayList&lt;Integer&gt; are compared directly, and the shuffle of an int[] is included to
+ * show the cost without boxing.
+ *
+ * The first argument is the minimum number of elements to shuffle per measurement (default 2^22).
+ * @author knokko
+ *
+ */
+public class ShuffleBenchmark {
+
+	private static final int[] SIZES = { 52, 1000, 1000000 };
+	private static final int ROUNDS = 3;
+
+	public static void main(String[] args) {
+		int totalElements = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 22;
+		for (int round = 1; round <= ROUNDS; round++) {
+			System.out.println("Round " + round + " (ns per element, 32-bit values per element):");
+			for (int size : SIZES) {
+				int repetitions = Math.max(1, totalElements / size);
+				List<Integer> list = new ArrayList<Integer>(size);
+				int[] array = new int[size];
+				for (int index = 0; index < size; index++) {
+					list.add(index);
+					array[index] = index;
+				}
+
+				CountingRandom collectionsSource = new CountingRandom(size);
+				long startTime = System.nanoTime();
+				for (int counter = 0; counter < repetitions; counter++) {
+					Collections.shuffle(list, collectionsSource);
+				}
+				print("Collections.shuffle(List)", size, repetitions, startTime, collectionsSource);
+
+				CountingRandom samplingSource = new CountingRandom(size);
+				JavaRandom random = new JavaRandom(samplingSource, true);
+				startTime = System.nanoTime();
+				for (int counter = 0; counter < repetitions; counter++) {
+					Sampling.shuffle(random, list);
+				}
+				print("Sampling.shuffle(List)", size, repetitions, startTime, samplingSource);
+
+				CountingRandom arraySource = new CountingRandom(size);
+				random = new JavaRandom(arraySource, true);
+				startTime = System.nanoTime();
+				for (int counter = 0; counter < repetitions; counter++) {
+					Sampling.shuffle(random, array);
+				}
+				print("Sampling.shuffle(int[])", size, repetitions, startTime, arraySource);
+			}
+		}
+	}
+
+	private static void print(String name, int size, int repetitions, long startTime, CountingRandom source) {
+		double elements = (double) size * repetitions;
+		System.out.printf("  %-28s %8d elements: %8.2f ns, %.3f values%n", name, size,
+				(System.nanoTime() - startTime) / elements, source.generatedValues / elements);
+	}
+
+	/**
+	 * A java.util.Random that counts the number of 32-bit values it generates
+	 */
+	private static class CountingRandom extends java.util.Random {
+
+		private static final long serialVersionUID = 1L;
+
+		private long generatedValues;
+
+		CountingRandom(long seed) {
+			super(seed);
+		}
+
+		@Override
+		protected int next(int bits) {
+			generatedValues++;
+			return super.next(bits);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package nl.knokko.util.random;
+
+import nl.knokko.util.bits.BitHelper;
+
+/**
+ * Converts between the bytes of BitHelper and packed bit patterns. In a pattern, bit i (counting from the
+ * least significant bit) holds the i'th boolean that BitHelper.byteToBinary would produce for the byte.
+ * This allows generators to handle whole words at once while staying compatible with the byte encoding
+ * that BitHelper uses.
+ * @author knokko
+ *
+ */
+final class BitPatterns {
+	
+	private static final byte[] BYTES = new byte[256];
+	private static final int[] PATTERNS = new int[256];
+	
+	static {
+		boolean[] bits = new boolean[8];
+		for (int pattern = 0; pattern < 256; pattern++) {
+			for (int index = 0; index < 8; index++) {
+				bits[index] = (pattern & (1 << index)) != 0;
+			}
+			BYTES[pattern] = BitHelper.byteFromBinary(bits);
+		}
+		for (int value = 0; value < 256; value++) {
+			bits = BitHelper.byteToBinary((byte) value);
+			int pattern = 0;
+			for (int index = 0; index < 8; index++) {
+				if (bits[index]) {
+					pattern |= 1 << index;
+				}
+			}
+			PATTERNS[value] = pattern;
+		}
+	}
+	
+	private BitPatterns() {}
+	
+	/**
+	 * @param pattern The bit pattern, only the least significant 8 bits are used
+	 * @return The byte that BitHelper.byteFromBinary would return for the 8 bits of the pattern
+	 */
+	static byte toByte(long pattern) {
+		return BYTES[(int) pattern & 0xFF];
+	}
+	
+	/**
+	 * @param value The byte to convert
+	 * @return The 8-bit pattern of the booleans that BitHelper.byteToBinary would return for the value
+	 */
+	static int toPattern(byte value) {
+		return PATTERNS[value & 0xFF];
+	}
+	
+	static short toShort(long pattern) {
+		return BitHelper.makeShort(toByte(pattern), toByte(pattern >>> 8));
+	}
+	
+	static char toChar(long pattern) {
+		return BitHelper.makeChar(toByte(pattern), toByte(pattern >>> 8));
+	}
+	
+	static int toInt(long pattern) {
+		return BitHelper.makeInt(toByte(pattern), toByte(pattern >>> 8), toByte(pattern >>> 16), toByte(pattern >>> 24));
+	}
+	
+	static long toLong(long pattern) {
+		return BitHelper.makeLong(toByte(pattern), toByte(pattern >>> 8), toByte(pattern >>> 16), toByte(pattern >>> 24),
+				toByte(pattern >>> 32), toByte(pattern >>> 40), toByte(pattern >>> 48), toByte(pattern >>> 56));
+	}
+	
+	/**
+	 * @param value The int to convert
+	 * @return The 32-bit pattern that would be produced by writing the bytes int0 to int3 of the value
+	 * with BitHelper.byteToBinary, one after another
+	 */
+	static long intToPattern(int value) {
+		return (toPattern(BitHelper.int0(value)) | toPattern(BitHelper.int1(value)) << 8
+				| toPattern(BitHelper.int2(value)) << 16 | (long) toPattern(BitHelper.int3(value)) << 24);
+	}
+	
+	/**
+	 * @param value The long to convert
+	 * @return The 64-bit pattern that would be produced by writing the bytes long0 to long7 of the value
+	 * with BitHelper.byteToBinary, one after another
+	 */
+	static long longToPattern(long value) {
+		return toPattern(BitHelper.long0(value)) | toPattern(BitHelper.long1(value)) << 8
+				| toPattern(BitHelper.long2(value)) << 16 | (long) toPattern(BitHelper.long3(value)) << 24
+				| (long) toPattern(BitHelper.long4(value)) << 32 | (long) toPattern(BitHelper.long5(value)) << 40
+				| (long) toPattern(BitHelper.long6(value)) << 48 | (long) toPattern(BitHelper.long7(value)) << 56;
+	}
+}
@@ -0,0 +1,488 @@
+package nl.knokko.util.random;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A Random that can safely be shared by many threads. Instead of sharing a single generator (which would
+ * require a lock around every call), a ConcurrentRandom has a number of stripes, each with its own
+ * generator. Every call claims one stripe for the duration of the call. Threads start looking at the
+ * stripe that belongs to their thread id, so different threads will normally use different stripes and
+ * don't need to wait for each other. If that stripe is in use by another thread, the next stripe will be
+ * tried instead, so threads never block each other.
+ *
+ * No thread locals and no monitors are used, so this class works fine with large amounts of virtual
+ * threads: they simply share the stripes.
+ *
+ * Because the stripe that serves a call depends on the thread scheduling, a ConcurrentRandom is never a
+ * pseudo random number generator, even if all its stripes are.
+ * @author knokko
+ *
+ */
+public class ConcurrentRandom extends Random {
+
+	/**
+	 * The number of ints between the flags of consecutive stripes. This puts every flag on its own cache line
+	 * (of 64 bytes), so threads that use different stripes don't slow each other down by writing to the same
+	 * cache line.
+	 */
+	private static final int FLAG_STRIDE = 16;
+
+	/**
+	 * @return the default number of stripes: the smallest power of 2 that is at least twice the number of
+	 * available processors
+	 */
+	private static int defaultStripeCount() {
+		return Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+	}
+
+	private static Random[] createStripes(Random master, PseudoRandom.Configuration config, int stripeCount) {
+		if (stripeCount <= 0 || Integer.bitCount(stripeCount) != 1)
+			throw new IllegalArgumentException("The number of stripes must be a power of 2, but is " + stripeCount);
+		Random[] generators = new Random[stripeCount];
+		for (int index = 0; index < stripeCount; index++) {
+			generators[index] = new PseudoRandom(master.nextLong(), master.nextLong(), master.nextLong(), master.nextLong(), config);
+		}
+		return generators;
+	}
+
+	private final Random[] generators;
+
+	/**
+	 * The flag of stripe i is at index (i + 1) * FLAG_STRIDE and is 1 while a thread is using the stripe. The
+	 * other elements are padding, including the FLAG_STRIDE ints before the first flag and after the last flag.
+	 */
+	private final AtomicIntegerArray flags;
+	private final int stripeMask;
+
+	/**
+	 * Creates a ConcurrentRandom with the default number of stripes. Every stripe will get a PseudoRandom
+	 * with the given configuration that is seeded by the master.
+	 * @param master The generator to seed the stripes with. It will only be used by this constructor.
+	 * @param config The configuration of the PseudoRandom's of the stripes
+	 */
+	public ConcurrentRandom(Random master, PseudoRandom.Configuration config) {
+		this(master, config, defaultStripeCount());
+	}
+
+	/**
+	 * Creates a ConcurrentRandom with the given number of stripes. Every stripe will get a PseudoRandom
+	 * with the given configuration that is seeded by the master.
+	 * @param master The generator to seed the stripes with. It will only be used by this constructor.
+	 * @param config The configuration of the PseudoRandom's of the stripes
+	 * @param stripeCount The number of stripes, must be a power of 2
+	 */
+	public ConcurrentRandom(Random master, PseudoRandom.Configuration config, int stripeCount) {
+		this(createStripes(master, config, stripeCount));
+	}
+
+	/**
+	 * Creates a ConcurrentRandom that uses the given generators as stripes. The generators should produce
+	 * independent values and must not be used by anything else.
+	 * @param generators The generators for the stripes, the number of generators must be a power of 2
+	 */
+	public ConcurrentRandom(Random... generators) {
+		if (generators.length == 0 || Integer.bitCount(generators.length) != 1)
+			throw new IllegalArgumentException("The number of stripes must be a power of 2, but is " + generators.length);
+		this.generators = generators.clone();
+		this.flags = new AtomicIntegerArray((generators.length + 2) * FLAG_STRIDE);
+		stripeMask = generators.length - 1;
+	}
+
+	/**
+	 * Claims a stripe for the current thread. The stripe must be released when the call is finished.
+	 * @return the index of the claimed stripe
+	 */
+	private int claim() {
+		long threadId = Thread.currentThread().getId();
+		int first = (int) ((threadId * 0x9E3779B97F4A7C15L) >>> 32);
+		while (true) {
+			for (int attempt = 0; attempt <= stripeMask; attempt++) {
+				int stripe = (first + attempt) & stripeMask;
+				int flagIndex = (stripe + 1) * FLAG_STRIDE;
+				if (flags.get(flagIndex) == 0 && flags.compareAndSet(flagIndex, 0, 1)) {
+					return stripe;
+				}
+			}
+
+			// All stripes are in use, which can only happen when there are more threads than stripes
+			Thread.yield();
+		}
+	}
+
+	private void release(int stripe) {
+		flags.set((stripe + 1) * FLAG_STRIDE, 0);
+	}
+
+	@Override
+	public boolean next() {
+		int stripe = claim();
+		try {
+			return generators[stripe].next();
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public long nextBits(int amount) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextBits(amount);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public byte nextByte() {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextByte();
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public short nextShort() {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextShort();
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public char nextChar() {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextChar();
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public int nextInt() {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextInt();
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public long nextLong() {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextLong();
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public float nextFloat() {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextFloat();
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public double nextDouble() {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextDouble();
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public float nextFloat(float origin, float bound) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextFloat(origin, bound);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public float nextDenseFloat() {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextDenseFloat();
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public double nextDouble(double origin, double bound) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextDouble(origin, bound);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public double nextDenseDouble() {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextDenseDouble();
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public int fastNextInt(int bound) {
+		int stripe = claim();
+		try {
+			return generators[stripe].fastNextInt(bound);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public int nextInt(int bound) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextInt(bound);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public int nextInt(int origin, int bound) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextInt(origin, bound);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public long nextLong(long bound) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextLong(bound);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public long nextLong(long origin, long bound) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextLong(origin, bound);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public boolean[] nextBooleans(int size) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextBooleans(size);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public void nextBooleans(boolean[] target, int offset, int length) {
+		int stripe = claim();
+		try {
+			generators[stripe].nextBooleans(target, offset, length);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public void nextBits(long[] target, int bitOffset, int amount) {
+		int stripe = claim();
+		try {
+			generators[stripe].nextBits(target, bitOffset, amount);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public void nextBits(BitSet target, int fromIndex, int toIndex) {
+		int stripe = claim();
+		try {
+			generators[stripe].nextBits(target, fromIndex, toIndex);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public void nextBytes(byte[] target, int offset, int length) {
+		int stripe = claim();
+		try {
+			generators[stripe].nextBytes(target, offset, length);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public void nextBytes(ByteBuffer target) {
+		int stripe = claim();
+		try {
+			generators[stripe].nextBytes(target);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public void nextInts(int[] target, int offset, int length) {
+		int stripe = claim();
+		try {
+			generators[stripe].nextInts(target, offset, length);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public void nextInts(int[] target, int offset, int length, int bound) {
+		int stripe = claim();
+		try {
+			generators[stripe].nextInts(target, offset, length, bound);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public void nextLongs(long[] target, int offset, int length) {
+		int stripe = claim();
+		try {
+			generators[stripe].nextLongs(target, offset, length);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public byte[] nextBytes(int amount) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextBytes(amount);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public char[] nextChars(int amount) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextChars(amount);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public int[] nextInts(int amount) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextInts(amount);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public float[] nextFloats(int amount) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextFloats(amount);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public long[] nextLongs(int amount) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextLongs(amount);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public double[] nextDoubles(int amount) {
+		int stripe = claim();
+		try {
+			return generators[stripe].nextDoubles(amount);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public void nextDoubles(double[] target, int offset, int length) {
+		int stripe = claim();
+		try {
+			generators[stripe].nextDoubles(target, offset, length);
+		} finally {
+			release(stripe);
+		}
+	}
+
+	/**
+	 * Splits one of the stripes. The result is meant to be used by a single thread.
+	 */
+	@Override
+	public Random split() {
+		int stripe = claim();
+		try {
+			return generators[stripe].split();
+		} finally {
+			release(stripe);
+		}
+	}
+
+	@Override
+	public boolean isPseudo() {
+		return false;
+	}
+
+	/**
+	 * Clones all stripes. This method should not be called while other threads are using this
+	 * ConcurrentRandom.
+	 */
+	@Override
+	public ConcurrentRandom clone() {
+		Random[] clones = new Random[generators.length];
+		for (int index = 0; index < clones.length; index++) {
+			clones[index] = generators[index].clone();
+		}
+		return new ConcurrentRandom(clones);
+	}
+}
@@ -24,22 +24,22 @@
 package nl.knokko.util.random;
 
 import java.io.BufferedOutputStream;
-import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
-import nl.knokko.util.bits.BitHelper;
 import nl.knokko.util.bits.BitInput;
 import nl.knokko.util.bits.BitOutput;
 import nl.knokko.util.bits.BitOutputStream;
 import nl.knokko.util.bits.ByteArrayBitInput;
 import nl.knokko.util.random.PseudoRandom.Configuration;
 
-import static nl.knokko.util.bits.BitHelper.byteFromBinary;
-
 /**
  * I tried to program a cryptographically strong random number generator and this is the result. It
  * should not be used in any serious environment because it is not proven to be secure. I simply don't
@@ -68,6 +68,16 @@ public class CrazyRandom extends Random {
 		int index = (int) (System.currentTimeMillis() % (MAX_INDEX + 1));
 		return new CrazyRandom(state, index);
 	}
+	
+	/**
+	 * Creates a CrazyRandom with the given packed state. Like fromFile, the start index will be based on the
+	 * current time.
+	 * @param state The packed state, which will be used directly by the CrazyRandom
+	 */
+	static CrazyRandom fromPackedState(long[] state) {
+		int index = (int) (System.currentTimeMillis() % (MAX_INDEX + 1));
+		return new CrazyRandom(state, index);
+	}
 
 	/**
 	 * Quickly creates a CrazyRandom instance that is not very strong, but this
@@ -77,7 +87,7 @@ public class CrazyRandom extends Random {
 	 */
 	public static CrazyRandom createWeak() {
 		PseudoRandom simple = new PseudoRandom(PseudoRandom.Configuration.LEGACY);
-		CrazyRandom crazy = new CrazyRandom(simple.nextBooleans(LENGTH), simple.nextInt(MAX_INDEX));
+		CrazyRandom crazy = new CrazyRandom(simple.nextBooleans(LENGTH), simple.legacyNextInt(MAX_INDEX));
 		crazy.superMix();
 		return crazy;
 	}
@@ -86,233 +96,215 @@ public class CrazyRandom extends Random {
 	 * Attempts to create a strong CrazyRandom instance. This method will search the
 	 * file system for files to read and uses the contents of some random files to
 	 * seed itself. If the readable files are not good enough, an IOException will
-	 * be thrown instead.
+	 * be thrown instead. The search is limited to a depth of 12 directories below the
+	 * file system roots and to 2 seconds.
 	 * 
 	 * @return A strong CrazyRandom instance
-	 * @throws IOException if there are no readable files or if an IO exception
-	 *                     occurs while reading a file that should be readable
+	 * @throws IOException if there are no readable files or if they don't contain
+	 *                     enough bytes
 	 */
 	public static CrazyRandom createStrong() throws IOException {
-		int readableFileIndex = 0;
-		FileLengthPair[] readableFiles = new FileLengthPair[10000];
-
-		// Let's see what we can get...
-		File[] roots = File.listRoots();
-		if (roots != null && roots.length > 0) {
-
-			// Nice, we can access root files
-			for (File root : roots) {
-				readableFileIndex = addFiles(readableFiles, readableFileIndex, root);
-			}
-		} else {
-
-			// Ok, we will have to do it with local files...
-			File current = new File(".");
-			try {
-
-				// At least we can get the absolute file and thus 'climb upwards'
-				current = current.getAbsoluteFile();
-				while (readableFileIndex < readableFiles.length) {
-					readableFileIndex = addFiles(readableFiles, readableFileIndex, current);
-					current = current.getParentFile();
-					if (current == null) {
-						break;
-					}
-				}
-			} catch (SecurityException sec) {
-
-				// It looks like we will have to stay local
-				readableFileIndex = addFiles(readableFiles, readableFileIndex, current);
-			}
-		}
-
-		byte[] bytes;
-
-		// By now, the array should either be full or contain all readable files
-		if (readableFileIndex == 0) {
-			throw new IOException("Not a single readable file was found");
-		} else if (readableFileIndex < 10) {
-
-			// Don't be picky, use all files we got!
-			int totalLength = 0;
-			for (FileLengthPair pair : readableFiles) {
-				totalLength += pair.length;
-			}
-
-			// Now fill all the bytes into the array
-			bytes = new byte[totalLength];
-			int byteIndex = 0;
-			for (FileLengthPair pair : readableFiles) {
-				DataInputStream input = new DataInputStream(Files.newInputStream(pair.file.toPath()));
-				input.readFully(bytes, byteIndex, pair.length);
-				byteIndex += pair.length;
-				input.close();
-			}
-
-		} else {
+		return createStrong(DEFAULT_SEARCH_DEPTH, DEFAULT_SEARCH_TIME);
+	}
 
-			// Use a simple Random to select which files we will use
-			Random selector = new PseudoRandom(PseudoRandom.Configuration.LEGACY);
-			
-			File[] selected = new File[Math.min(30, readableFileIndex)];
-			int totalLength = 0;
-			for (int index = 0; index < selected.length; index++) {
-				int nextFileIndex = selector.nextInt(readableFileIndex - index);
-				FileLengthPair next = readableFiles[nextFileIndex];
-				readableFiles[nextFileIndex] = readableFiles[readableFileIndex - 1];
-				readableFiles[readableFileIndex - 1] = next;
-				selected[index] = next.file;
-				totalLength += next.length;
-			}
-			
-			bytes = new byte[totalLength];
-		}
+	/**
+	 * Attempts to create a strong CrazyRandom instance, like createStrong() does, but with a custom limit
+	 * for the file system search. The directories below the file system roots are searched in parallel,
+	 * the selected files are read in parallel and the seeds are combined in parallel.
+	 * 
+	 * @param maxDepth The maximum depth of the files to search, relative to the file system roots
+	 * @param searchTime The maximum time to spend on searching for files, in milliseconds
+	 * @return A strong CrazyRandom instance
+	 * @throws IOException if there are no readable files or if they don't contain
+	 *                     enough bytes
+	 */
+	public static CrazyRandom createStrong(int maxDepth, long searchTime) throws IOException {
+		byte[] bytes = EntropyHarvester.harvest(maxDepth, searchTime);
 
 		// Create some random number generators
 
-		// addFiles guarantees the minimal file length is MIN_USABLE_FILE_LENGTH
-		// which ensure that the file and thus the byte array contains enough bytes to
-		// do this:
+		// The harvester guarantees that there are at least 32 bytes, which ensures that we can do this:
 		ByteBuffer buffer = ByteBuffer.wrap(bytes);
 		Random initial = new PseudoRandom(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(),
 				PseudoRandom.Configuration.LEGACY);
 
-		int randomAmount = 50 + initial.nextInt(32);
+		int randomAmount = 50 + initial.legacyNextInt(32);
 		Random[] array = new Random[randomAmount];
 		for (int index = 0; index < randomAmount; index++) {
-			buffer.position(initial.nextInt(bytes.length - 32));
+			buffer.position(initial.legacyNextInt(bytes.length - 31));
 			array[index] = new PseudoRandom(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(),
 					PseudoRandom.Configuration.LEGACY);
 		}
 
-		// Use the random number generators
-		boolean[] seed = new boolean[LENGTH];
-		for (Random current : array) {
-			for (int index = 0; index < LENGTH; index++) {
-				seed[index] ^= current.next();
+		// Use the random number generators, each of them can run on its own thread
+		long[] seed = Arrays.stream(array).parallel().map(CrazyRandom::generateState).reduce(new long[WORDS], (first, second) -> {
+			long[] combined = new long[WORDS];
+			for (int word = 0; word < WORDS; word++) {
+				combined[word] = first[word] ^ second[word];
 			}
-		}
+			return combined;
+		});
 
 		// Let's do something with the remaining bytes...
-		int seedIndex = 0;
-		for (byte b : bytes) {
-			seed[seedIndex] = seed[seedIndex] ^ (b % 2 == 0);
-			if (seedIndex >= LENGTH) {
-				seedIndex -= LENGTH;
+		for (int byteIndex = 0; byteIndex < bytes.length; byteIndex++) {
+			if (bytes[byteIndex] % 2 == 0) {
+				int seedIndex = byteIndex % LENGTH;
+				seed[seedIndex >>> 6] ^= 1L << seedIndex;
 			}
 		}
 
-		return new CrazyRandom(seed, initial.nextInt(MAX_INDEX));
+		return new CrazyRandom(seed, initial.legacyNextInt(MAX_INDEX));
 	}
 
-	private static class FileLengthPair implements Comparable<FileLengthPair> {
-
-		private final File file;
-		private final int length;
-
-		private FileLengthPair(File file, long length) {
-			this.file = file;
-			this.length = (int) length;
-		}
-
-		@Override
-		public int compareTo(FileLengthPair other) {
-			if (length < other.length) {
-				return -1;
-			}
-			if (length > other.length) {
-				return 1;
-			}
-			return 0;
-		}
+	/**
+	 * Creates a strong CrazyRandom instance on the common fork join pool, see createStrong().
+	 * @return A future that will complete with the strong CrazyRandom instance, or complete exceptionally
+	 * with the IOException that createStrong() would throw
+	 */
+	public static CompletableFuture<CrazyRandom> createStrongAsync() {
+		return createStrongAsync(ForkJoinPool.commonPool());
 	}
 
-	private static final int MIN_USABLE_FILE_LENGTH = 32;
-	private static final int MAX_USABLE_FILE_LENGTH = 100000;
-
-	private static int addFiles(FileLengthPair[] files, int oldIndex, File current) {
-		if (oldIndex >= files.length) {
-			return oldIndex;
-		}
-		if (current.isDirectory()) {
-
-			// This is a directory, so let's try to add all files within it
-			try {
-				File[] children = current.listFiles();
-				if (children != null) {
-
-					int newIndex = oldIndex;
-
-					// Ok, try to add all children
-					for (File child : children) {
-						newIndex = addFiles(files, newIndex, child);
-
-						// Array is filled, so we are done
-						if (newIndex >= files.length) {
-							return newIndex;
-						}
-					}
-
-					return newIndex;
-				} else {
-
-					// Ok, this must be some weird directory
-					return oldIndex;
-				}
-			} catch (SecurityException sec) {
-
-				// Alright, let's stay out of this one
-				return oldIndex;
-			}
-		} else if (current.isFile()) {
+	/**
+	 * Creates a strong CrazyRandom instance on the given executor, see createStrong().
+	 * @param executor The executor to run the search on
+	 * @return A future that will complete with the strong CrazyRandom instance, or complete exceptionally
+	 * with the IOException that createStrong() would throw
+	 */
+	public static CompletableFuture<CrazyRandom> createStrongAsync(Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
 			try {
-				long length = current.length();
-				if (current.canRead() && length >= MIN_USABLE_FILE_LENGTH && length <= MAX_USABLE_FILE_LENGTH) {
-
-					// We can read it, so add to the array and increase index
-					files[oldIndex] = new FileLengthPair(current, length);
-					return oldIndex + 1;
-				} else {
-					return oldIndex;
-				}
-			} catch (SecurityException sec) {
-
-				// I guess this means we are not allowed to read it
-				return oldIndex;
+				return createStrong();
+			} catch (IOException ioex) {
+				throw new CompletionException(ioex);
 			}
-		} else {
+		}, executor);
+	}
 
-			// This is some special file that is not a normal file or directory
-			return oldIndex;
+	/**
+	 * Generates the bits for an entire (packed) state with the given random.
+	 */
+	private static long[] generateState(Random random) {
+		long[] result = new long[WORDS];
+		for (int word = 0; word < WORDS; word++) {
+			result[word] = random.nextBits(64);
 		}
+		return result;
 	}
 
+	private static final int DEFAULT_SEARCH_DEPTH = 12;
+	private static final long DEFAULT_SEARCH_TIME = 2000;
+
 	private static final int LENGTH = 32000;
+	static final int WORDS = LENGTH / 64;
 	private static final int MAX_INDEX = LENGTH - 1025;
+	
+	private static final int STRONG_MIX_BYTES = 128;
+	private static final int SUPER_MIX_BYTES = 640;
+	
+	private static final int NO_MIX = -1;
+	private static final int WEAK_MIX = 0;
+	private static final int MEDIUM_MIX = 1;
+	private static final int STRONG_MIX = 2;
+	private static final int SUPER_MIX = 3;
+	
+	/**
+	 * The number of writeLong/addLong calls that each type of mix does.
+	 */
+	private static final int[] MIX_STEPS = { 10, 40, 100, 1000 };
+	
+	private static final int PHASE_SEED = 0;
+	private static final int PHASE_FILL = 1;
+	private static final int PHASE_UPDATE = 2;
+	private static final int PHASE_CLEAR = 3;
+	
+	/**
+	 * The number of mixing steps that a single next() call does in incremental mixing mode. All mixes
+	 * together need roughly 2 steps per next() call on average, so this is enough to keep up.
+	 */
+	private static final int MIX_STEPS_PER_CALL = 4;
+	private static final int MIX_QUEUE_CAPACITY = 32;
 
 	/**
-	 * length must be 32000
+	 * The 32000 bits of the state, packed into 500 longs. Bit i of the state is bit (i % 64) of
+	 * state[i / 64].
 	 */
-	private final boolean[] state;
+	private final long[] state;
 
 	private int index;
 	private short counter;
 	
+	/*
+	 * The random number generators that are used to mix the state. They are reseeded before every use, so
+	 * they are not really part of the state of this CrazyRandom. They are reused to avoid creating 
+	 * new generators all the time. Only clone() replaces them, when a queued mix is in progress.
+	 */
+	private PseudoRandom mixer = new PseudoRandom(0, 0, 0, 0, Configuration.LEGACY);
+	private RandomArray strongMixer = RandomArray.createPseudo(Configuration.LEGACY, new byte[STRONG_MIX_BYTES]);
+	private RandomArray superMixer = RandomArray.createPseudo(Configuration.LEGACY, new byte[SUPER_MIX_BYTES]);
+	private final byte[] mixBytes = new byte[SUPER_MIX_BYTES];
+	
+	private boolean incrementalMixing;
+	
+	/*
+	 * The queue of mixes that still need to be done in incremental mixing mode, and the progress of the
+	 * mix at the start of the queue.
+	 */
+	private final byte[] mixQueue = new byte[MIX_QUEUE_CAPACITY];
+	private int mixQueueStart;
+	private int mixQueueSize;
+	private int mixPhase;
+	private int mixProgress;
+	
 	/**
 	 * Creates a new CrazyRandom instance with the given state/seed and start index. The given state
-	 * will be used directly by this instance and thus modifications to that same boolean array could
-	 * affect the numbers generated by this CrazyRandom. (Also, this CrazyRandom will modify the state
-	 * all the time.)
+	 * will be copied, so later modifications to the boolean array won't affect this CrazyRandom.
 	 * @param state The state/seed of the random number generator
 	 * @param index The start index of the random number generator
 	 */
 	public CrazyRandom(boolean[] state, int index) {
 		if (state.length != LENGTH)
 			throw new IllegalArgumentException("Length of state must be " + LENGTH);
+		this.state = new long[WORDS];
+		for (int bitIndex = 0; bitIndex < LENGTH; bitIndex++) {
+			if (state[bitIndex]) {
+				this.state[bitIndex >>> 6] |= 1L << bitIndex;
+			}
+		}
+		this.index = index;
+	}
+	
+	/**
+	 * Creates a new CrazyRandom instance with the given packed state and start index. The given array will
+	 * be used directly by this instance.
+	 * @param state The state, bit i of the state must be bit (i % 64) of state[i / 64]
+	 * @param index The start index of the random number generator
+	 */
+	CrazyRandom(long[] state, int index) {
+		if (state.length != WORDS)
+			throw new IllegalArgumentException("Length of state must be " + WORDS);
 		this.state = state;
 		this.index = index;
 	}
 	
+	/**
+	 * @return a copy of the packed state of this CrazyRandom
+	 */
+	long[] getPackedState() {
+		return Arrays.copyOf(state, WORDS);
+	}
+	
+	/**
+	 * @return a copy of the state of this CrazyRandom, with 1 boolean per bit
+	 */
+	private boolean[] getState() {
+		boolean[] result = new boolean[LENGTH];
+		for (int bitIndex = 0; bitIndex < LENGTH; bitIndex++) {
+			result[bitIndex] = (state[bitIndex >>> 6] & (1L << bitIndex)) != 0;
+		}
+		return result;
+	}
+	
 	/**
 	 * Saves the seed of this CrazyRandom to the given file. Later, a similar CrazyRandom can be loaded
 	 * from the seed using CrazyRandom.fromFile. Notice however that this is NOT a pseudo random number
@@ -322,17 +314,58 @@ public class CrazyRandom extends Random {
 	 */
 	public void saveToFile(File file) throws IOException {
 		BitOutput output = new BitOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())));
-		output.addBooleans(state);
+		output.addBooleans(getState());
 		output.terminate();
 	}
 
+	/**
+	 * Turns incremental mixing on or off. By default, the mixing work is done in the next() call that
+	 * triggers it, which makes that call much slower than the other calls (superMix is the worst case).
+	 * When incremental mixing is on, the mixes are queued instead and every next() call does a small slice
+	 * of the queued mixing work, so the time per call is much more predictable. The same mixing work is
+	 * done in both modes, but the bits that are returned while a mix is in progress will come from a state
+	 * that is only partially mixed.
+	 * 
+	 * If the queued work can't keep up (which should not happen in practice), next() will complete the
+	 * oldest queued mix before queueing a new one.
+	 * @param incremental true to turn incremental mixing on, false to turn it off
+	 */
+	public void setIncrementalMixing(boolean incremental) {
+		if (!incremental) {
+			continueMixing(Integer.MAX_VALUE);
+		}
+		this.incrementalMixing = incremental;
+	}
+	
+	public boolean isIncrementalMixing() {
+		return incrementalMixing;
+	}
+
 	@Override
 	public boolean next() {
-		boolean result = state[index];
+		boolean result = (state[index >>> 6] & (1L << index)) != 0;
 		counter++;
 		if (result)
 			counter++;
-		if ((counter / 45) * 45 == counter) {
+		if (incrementalMixing) {
+			int mix = NO_MIX;
+			if ((counter / 45) * 45 == counter) {
+				mix = WEAK_MIX;
+			} else if ((counter / 123) * 123 == counter) {
+				mix = MEDIUM_MIX;
+			} else if ((counter / 421) * 421 == counter) {
+				mix = STRONG_MIX;
+			} else if (counter == 2998 || counter == 2999) {
+				mix = SUPER_MIX;
+				counter = 0;
+			}
+			index--;
+			if (index <= 0)
+				index = MAX_INDEX;
+			if (mix != NO_MIX)
+				queueMix(mix);
+			continueMixing(MIX_STEPS_PER_CALL);
+		} else if ((counter / 45) * 45 == counter) {
 			weakMix();
 			clearTrace();
 		} else if ((counter / 123) * 123 == counter) {
@@ -352,16 +385,65 @@ public class CrazyRandom extends Random {
 		}
 		return result;
 	}
+	
+	private void queueMix(int mix) {
+		if (mixQueueSize == MIX_QUEUE_CAPACITY) {
+			
+			// The queue is full, so complete the oldest mix right now
+			while (mixQueueSize == MIX_QUEUE_CAPACITY)
+				continueMixing(1);
+		}
+		mixQueue[(mixQueueStart + mixQueueSize) % MIX_QUEUE_CAPACITY] = (byte) mix;
+		mixQueueSize++;
+	}
+	
+	/**
+	 * Continues the queued mixes. Every step is either reseeding a mixer, generating 8 seed bytes for
+	 * a mixer, a single writeLong/addLong of a mix or a clearTrace.
+	 * @param steps The maximum number of steps to do
+	 */
+	private void continueMixing(int steps) {
+		for (; steps > 0 && mixQueueSize > 0; steps--) {
+			int mix = mixQueue[mixQueueStart];
+			if (mixPhase == PHASE_SEED) {
+				seedMixer(mix);
+				mixProgress = 0;
+				mixPhase = mix == STRONG_MIX || mix == SUPER_MIX ? PHASE_FILL : PHASE_UPDATE;
+			} else if (mixPhase == PHASE_FILL) {
+				int amount = mix == STRONG_MIX ? STRONG_MIX_BYTES : SUPER_MIX_BYTES;
+				int bound = Math.min(mixProgress + 8, amount);
+				fillMixBytes(mixProgress, bound);
+				mixProgress = bound;
+				if (mixProgress == amount) {
+					(mix == STRONG_MIX ? strongMixer : superMixer).reseedPseudo(mixBytes, 0, amount);
+					mixProgress = 0;
+					mixPhase = PHASE_UPDATE;
+				}
+			} else if (mixPhase == PHASE_UPDATE) {
+				mixStep(mix);
+				mixProgress++;
+				if (mixProgress == MIX_STEPS[mix]) {
+					if (mix == WEAK_MIX)
+						invertMixRange();
+					mixPhase = PHASE_CLEAR;
+				}
+			} else {
+				clearTrace();
+				mixPhase = PHASE_SEED;
+				mixQueueStart = (mixQueueStart + 1) % MIX_QUEUE_CAPACITY;
+				mixQueueSize--;
+			}
+		}
+	}
 
 	protected void clearTrace() {
-		PseudoRandom temp = new PseudoRandom(readLong(index), readLong(index + 256), readLong(index + 512),
-				readLong(index + 768), Configuration.LEGACY);
-		addLong(index, temp.nextLong());
-		addLong(index + 256, temp.nextLong());
-		addLong(index + 512, temp.nextLong());
-		addLong(index + 768, temp.nextLong());
+		mixer.reseed(readLong(index), readLong(index + 256), readLong(index + 512), readLong(index + 768));
+		addLong(index, mixer.nextLong());
+		addLong(index + 256, mixer.nextLong());
+		addLong(index + 512, mixer.nextLong());
+		addLong(index + 768, mixer.nextLong());
 		// System.out.println(index);
-		index += temp.nextInt(MAX_INDEX + 1);
+		index += mixer.legacyNextInt(MAX_INDEX + 1);
 		// System.out.println(index);
 		if (index > MAX_INDEX)
 			index -= MAX_INDEX;
@@ -370,44 +452,107 @@ public class CrazyRandom extends Random {
 	}
 
 	protected void superMix() {
-		Random first = new PseudoRandom(System.nanoTime(), System.identityHashCode(this), System.currentTimeMillis(),
-				System.identityHashCode(System.out), Configuration.LEGACY);
-		RandomArray second = RandomArray.createPseudo(Configuration.LEGACY, first.nextBytes(640));
-		for (int count = 0; count < 1000; count++)
-			addLong(second.nextInt(MAX_INDEX + 1), second.nextLong());
+		seedMixer(SUPER_MIX);
+		fillMixBytes(0, SUPER_MIX_BYTES);
+		superMixer.reseedPseudo(mixBytes, 0, SUPER_MIX_BYTES);
+		for (int count = 0; count < MIX_STEPS[SUPER_MIX]; count++)
+			mixStep(SUPER_MIX);
 	}
 
 	protected void strongMix() {
-		Random first = new PseudoRandom(System.nanoTime(), readLong(index), readLong(index + 256),
-				readLong(index + 512), Configuration.LEGACY);
-		RandomArray second = RandomArray.createPseudo(Configuration.LEGACY, first.nextBytes(128));
-		for (int count = 0; count < 100; count++)
-			addLong(second.nextInt(MAX_INDEX + 1), second.nextLong());
+		seedMixer(STRONG_MIX);
+		fillMixBytes(0, STRONG_MIX_BYTES);
+		strongMixer.reseedPseudo(mixBytes, 0, STRONG_MIX_BYTES);
+		for (int count = 0; count < MIX_STEPS[STRONG_MIX]; count++)
+			mixStep(STRONG_MIX);
 	}
 
 	protected void mediumMix() {
-		Random random = new PseudoRandom(System.nanoTime(), Configuration.LEGACY);
-		for (int count = 0; count < 40; count++)
-			writeLong(random.nextInt(MAX_INDEX + 1), random.nextLong());
+		seedMixer(MEDIUM_MIX);
+		for (int count = 0; count < MIX_STEPS[MEDIUM_MIX]; count++)
+			mixStep(MEDIUM_MIX);
 	}
 
 	protected void weakMix() {
-		Random random = new PseudoRandom(System.nanoTime(), Configuration.LEGACY);
-		for (int count = 0; count < 10; count++)
-			writeLong(random.nextInt(MAX_INDEX + 1), random.nextLong());
-
-		int swapLength = 5000 + random.nextInt(10000);
-		int swapIndex = random.nextInt(LENGTH - swapLength);
-		for (int index = 0; index < swapLength; index++) {
-			state[index + swapIndex] = !state[index + swapIndex];
+		seedMixer(WEAK_MIX);
+		for (int count = 0; count < MIX_STEPS[WEAK_MIX]; count++)
+			mixStep(WEAK_MIX);
+		invertMixRange();
+	}
+	
+	private void seedMixer(int mix) {
+		if (mix == SUPER_MIX) {
+			mixer.reseed(System.nanoTime(), System.identityHashCode(this), System.currentTimeMillis(),
+					System.identityHashCode(System.out));
+		} else if (mix == STRONG_MIX) {
+			mixer.reseed(System.nanoTime(), readLong(index), readLong(index + 256), readLong(index + 512));
+		} else {
+			mixer.reseed(System.nanoTime());
 		}
 	}
+	
+	/**
+	 * Fills mixBytes in the range [startIndex, endIndex> with bytes generated by the mixer.
+	 */
+	private void fillMixBytes(int startIndex, int endIndex) {
+		for (int byteIndex = startIndex; byteIndex < endIndex; byteIndex++)
+			mixBytes[byteIndex] = mixer.nextByte();
+	}
+	
+	/**
+	 * Does a single writeLong or addLong of the given mix. The strong and super mix use their own mixer, the
+	 * other mixes use the mixer directly.
+	 */
+	private void mixStep(int mix) {
+		if (mix == SUPER_MIX) {
+			addLong(superMixer.legacyNextInt(MAX_INDEX + 1), superMixer.nextLong());
+		} else if (mix == STRONG_MIX) {
+			addLong(strongMixer.legacyNextInt(MAX_INDEX + 1), strongMixer.nextLong());
+		} else {
+			writeLong(mixer.legacyNextInt(MAX_INDEX + 1), mixer.nextLong());
+		}
+	}
+	
+	/**
+	 * The last part of the weak mix: inverts a large random range of the state.
+	 */
+	private void invertMixRange() {
+		int swapLength = 5000 + mixer.legacyNextInt(10000);
+		int swapIndex = mixer.legacyNextInt(LENGTH - swapLength);
+		invert(swapIndex, swapLength);
+	}
 
 	protected long readLong(int index) {
-		return BitHelper.makeLong(byteFromBinary(state, index), byteFromBinary(state, index + 8),
-				byteFromBinary(state, index + 16), byteFromBinary(state, index + 24), byteFromBinary(state, index + 32),
-				byteFromBinary(state, index + 40), byteFromBinary(state, index + 48),
-				byteFromBinary(state, index + 56));
+		return BitPatterns.toLong(readBits(index));
+	}
+	
+	/**
+	 * Reads the 64 bits of the state in the range [index, index + 64>.
+	 * @return the bits, the bit at index will be the least significant bit
+	 */
+	private long readBits(int index) {
+		int word = index >>> 6;
+		int offset = index & 63;
+		long result = state[word] >>> offset;
+		if (offset != 0) {
+			result |= state[word + 1] << (64 - offset);
+		}
+		return result;
+	}
+	
+	/**
+	 * Overwrites the 64 bits of the state in the range [index, index + 64>.
+	 * @param bits The new bits, the least significant bit will be stored at index
+	 */
+	private void writeBits(int index, long bits) {
+		int word = index >>> 6;
+		int offset = index & 63;
+		if (offset == 0) {
+			state[word] = bits;
+		} else {
+			state[word] = state[word] & (-1L >>> (64 - offset)) | bits << offset;
+			state[word + 1] = state[word + 1] & (-1L << offset) | bits >>> (64 - offset);
+		}
 	}
 
 	protected void addLong(int index, long value) {
@@ -415,20 +560,77 @@ public class CrazyRandom extends Random {
 	}
 
 	protected void writeLong(int index, long value) {
-		BitHelper.byteToBinary(BitHelper.long0(value), state, index);
-		BitHelper.byteToBinary(BitHelper.long1(value), state, index + 8);
-		BitHelper.byteToBinary(BitHelper.long2(value), state, index + 16);
-		BitHelper.byteToBinary(BitHelper.long3(value), state, index + 24);
-		BitHelper.byteToBinary(BitHelper.long4(value), state, index + 32);
-		BitHelper.byteToBinary(BitHelper.long5(value), state, index + 40);
-		BitHelper.byteToBinary(BitHelper.long6(value), state, index + 48);
-		BitHelper.byteToBinary(BitHelper.long7(value), state, index + 56);
+		writeBits(index, BitPatterns.longToPattern(value));
 	}
 
 	protected void invert(int index, int amount) {
+		if (amount <= 0)
+			return;
 		int bound = index + amount;
-		for (; index < bound; index++)
-			state[index] = !state[index];
+		int firstWord = index >>> 6;
+		int lastWord = (bound - 1) >>> 6;
+		long firstMask = -1L << index;
+		long lastMask = -1L >>> (-bound & 63);
+		if (firstWord == lastWord) {
+			state[firstWord] ^= firstMask & lastMask;
+		} else {
+			state[firstWord] ^= firstMask;
+			for (int word = firstWord + 1; word < lastWord; word++)
+				state[word] = ~state[word];
+			state[lastWord] ^= lastMask;
+		}
+	}
+
+	/**
+	 * Writes the state, index, counter and mixing mode of this CrazyRandom. When incremental mixing is
+	 * used, the queued mixes are written as well, but the progress of the current mix is not: the
+	 * restored CrazyRandom will restart that mix.
+	 */
+	@Override
+	void writeState(ByteBuffer buffer) {
+		for (long word : state) {
+			buffer.putLong(word);
+		}
+		buffer.putInt(index);
+		buffer.putShort(counter);
+		buffer.put((byte) (incrementalMixing ? 1 : 0));
+		buffer.put((byte) mixQueueSize);
+		for (int queueIndex = 0; queueIndex < mixQueueSize; queueIndex++) {
+			buffer.put(mixQueue[(mixQueueStart + queueIndex) % MIX_QUEUE_CAPACITY]);
+		}
+	}
+
+	@Override
+	int getStateSize() {
+		return 8 * WORDS + 4 + 2 + 1 + 1 + mixQueueSize;
+	}
+
+	/**
+	 * Reads the state that was written by writeState
+	 * @throws IllegalArgumentException If the index or the mix queue is invalid
+	 */
+	static CrazyRandom readState(ByteBuffer buffer) {
+		long[] state = new long[WORDS];
+		for (int word = 0; word < WORDS; word++) {
+			state[word] = buffer.getLong();
+		}
+		int index = buffer.getInt();
+		if (index < 0 || index > MAX_INDEX)
+			throw new IllegalArgumentException("Invalid CrazyRandom index " + index);
+		CrazyRandom result = new CrazyRandom(state, index);
+		result.counter = buffer.getShort();
+		result.incrementalMixing = buffer.get() != 0;
+		int queueSize = buffer.get();
+		if (queueSize < 0 || queueSize > MIX_QUEUE_CAPACITY)
+			throw new IllegalArgumentException("Invalid mix queue size " + queueSize);
+		for (int queueIndex = 0; queueIndex < queueSize; queueIndex++) {
+			byte mix = buffer.get();
+			if (mix < WEAK_MIX || mix > SUPER_MIX)
+				throw new IllegalArgumentException("Unknown mix " + mix);
+			result.mixQueue[queueIndex] = mix;
+		}
+		result.mixQueueSize = queueSize;
+		return result;
 	}
 
 	@Override
@@ -436,10 +638,28 @@ public class CrazyRandom extends Random {
 		return false;
 	}
 
+	/**
+	 * Creates a CrazyRandom with the same state, index and counter. When incremental mixing is used, the
+	 * clone gets the same queued mixes and will continue the current mix where this CrazyRandom is.
+	 */
 	@Override
 	public CrazyRandom clone() {
-		CrazyRandom clone = new CrazyRandom(Arrays.copyOf(state, state.length), index);
+		CrazyRandom clone = new CrazyRandom(Arrays.copyOf(state, WORDS), index);
 		clone.counter = counter;
+		clone.incrementalMixing = incrementalMixing;
+		System.arraycopy(mixQueue, 0, clone.mixQueue, 0, MIX_QUEUE_CAPACITY);
+		clone.mixQueueStart = mixQueueStart;
+		clone.mixQueueSize = mixQueueSize;
+		clone.mixPhase = mixPhase;
+		clone.mixProgress = mixProgress;
+		if (mixPhase != PHASE_SEED) {
+			
+			// The current mix continues with the mixers and bytes it was seeded with
+			clone.mixer = (PseudoRandom) mixer.clone();
+			clone.strongMixer = (RandomArray) strongMixer.clone();
+			clone.superMixer = (RandomArray) superMixer.clone();
+			System.arraycopy(mixBytes, 0, clone.mixBytes, 0, SUPER_MIX_BYTES);
+		}
 		return clone;
 	}
 }
\ No newline at end of file
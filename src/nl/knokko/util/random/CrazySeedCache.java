@@ -0,0 +1,197 @@
+package nl.knokko.util.random;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Keeps a CrazyRandom seed in a file, so that applications can get a strong CrazyRandom right after
+ * startup instead of waiting for CrazyRandom.createStrong(). A typical application would do this:
+ * 
+ * <pre>
+ * CrazySeedCache cache = new CrazySeedCache(path);
+ * CrazyRandom random = cache.open();
+ * cache.refreshAsync();
+ * </pre>
+ * 
+ * Every call to open() maps the cached seed into memory, derives 2 new seeds from it and replaces the
+ * cached seed with one of them (atomically) before it returns a CrazyRandom that uses the other one.
+ * Because of this, 2 runs of an application (or 2 processes that use the same file at the same time) will
+ * never use the same seed. Calls to refreshAsync() mix the seed of a new CrazyRandom.createStrong() into
+ * the cached seed, which prevents the cached seed from becoming stale.
+ * 
+ * The cache file uses its own format (a small header followed by the packed state), which is not
+ * compatible with CrazyRandom.saveToFile and CrazyRandom.fromFile.
+ * @author knokko
+ *
+ */
+public class CrazySeedCache {
+	
+	private static final int MAGIC = 0x43525343;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	private static final int FILE_SIZE = HEADER_SIZE + 8 * CrazyRandom.WORDS;
+	
+	/**
+	 * File locks are held by the entire JVM, so threads of the same JVM need to be synchronized as well.
+	 */
+	private static final Object JVM_LOCK = new Object();
+	
+	private final Path file;
+	private final Path lockFile;
+	
+	/**
+	 * @param file The file where the seed is (or will be) stored
+	 */
+	public CrazySeedCache(Path file) {
+		this.file = file.toAbsolutePath();
+		this.lockFile = this.file.resolveSibling(this.file.getFileName() + ".lock");
+	}
+	
+	/**
+	 * Creates a CrazyRandom from the cached seed and advances the cached seed. If there is no cached
+	 * seed yet, CrazyRandom.createWeak() will be used to create the first seed (which is much slower
+	 * than loading a cached seed).
+	 * @return a CrazyRandom whose seed is derived from the cached seed
+	 * @throws IOException If the cache file is corrupt or an IO error occurred
+	 */
+	public CrazyRandom open() throws IOException {
+		long[] loaded;
+		synchronized (JVM_LOCK) {
+			try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				FileLock lock = lockChannel.lock();
+				try {
+					long[] cached = load();
+					if (cached == null) {
+						cached = CrazyRandom.createWeak().getPackedState();
+					}
+					loaded = derive(cached, System.nanoTime() ^ System.identityHashCode(this));
+					store(derive(cached, System.currentTimeMillis() * 6364136223846793005L + System.nanoTime()));
+				} finally {
+					lock.release();
+				}
+			}
+		}
+		return CrazyRandom.fromPackedState(loaded);
+	}
+	
+	/**
+	 * Mixes the seed of a new strong CrazyRandom into the cached seed on the common fork join pool.
+	 * @return A future that completes when the cached seed has been refreshed
+	 */
+	public CompletableFuture<Void> refreshAsync() {
+		return refreshAsync(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Mixes the seed of a new strong CrazyRandom into the cached seed on the given executor. The old seed
+	 * is not thrown away, so a refresh can never make the cached seed weaker.
+	 * @param executor The executor to run createStrong() on
+	 * @return A future that completes when the cached seed has been refreshed
+	 */
+	public CompletableFuture<Void> refreshAsync(Executor executor) {
+		return CrazyRandom.createStrongAsync(executor).thenAcceptAsync(strong -> {
+			try {
+				refresh(strong.getPackedState());
+			} catch (IOException ioex) {
+				throw new CompletionException(ioex);
+			}
+		}, executor);
+	}
+	
+	private void refresh(long[] strongState) throws IOException {
+		synchronized (JVM_LOCK) {
+			try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				FileLock lock = lockChannel.lock();
+				try {
+					long[] cached = load();
+					if (cached != null) {
+						for (int word = 0; word < strongState.length; word++) {
+							strongState[word] ^= cached[word];
+						}
+					}
+					store(strongState);
+				} finally {
+					lock.release();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return the packed state that is stored in the cache file, or null if the file doesn't exist
+	 */
+	private long[] load() throws IOException {
+		MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() != FILE_SIZE) {
+				throw new IOException("The seed cache " + file + " should have " + FILE_SIZE + " bytes, but it has " + channel.size());
+			}
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, FILE_SIZE);
+		} catch (NoSuchFileException noFile) {
+			return null;
+		}
+		if (mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+			throw new IOException("The seed cache " + file + " is not a seed cache file of a supported version");
+		}
+		long[] state = new long[CrazyRandom.WORDS];
+		mapped.asLongBuffer().get(state);
+		return state;
+	}
+	
+	/**
+	 * Writes the packed state to a temporary file and then moves it to the cache file, so that other
+	 * processes will see either the old seed or the new seed, but never a partially written seed.
+	 */
+	private void store(long[] state) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(FILE_SIZE);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.asLongBuffer().put(state);
+		buffer.rewind();
+		
+		Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(true);
+			}
+			Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+	
+	/**
+	 * Derives a new packed state from the given state and key. Every word of the result depends on the key
+	 * and all previous words of the state, so states derived with different keys are completely different.
+	 */
+	private static long[] derive(long[] state, long key) {
+		long[] result = new long[state.length];
+		long chain = key;
+		for (int word = 0; word < state.length; word++) {
+			chain = mix(chain + state[word] + 0x9E3779B97F4A7C15L);
+			result[word] = state[word] ^ chain;
+		}
+		return result;
+	}
+	
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+}
@@ -0,0 +1,200 @@
+package nl.knokko.util.random;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the contents of some random files of the file system, which CrazyRandom.createStrong uses
+ * to seed itself. The directories below the file system roots are searched in parallel, but the search
+ * stops when enough files have been found, when the maximum depth is reached or when the time budget
+ * is exceeded. The selected files are read in parallel as well.
+ * @author knokko
+ *
+ */
+final class EntropyHarvester {
+	
+	private static final int MIN_USABLE_FILE_LENGTH = 32;
+	private static final int MAX_USABLE_FILE_LENGTH = 100000;
+	
+	private static final int MAX_FILES = 10000;
+	private static final int MAX_SELECTED_FILES = 30;
+	
+	/**
+	 * If less than this amount of files is found, all files will be used.
+	 */
+	private static final int MIN_SELECTION_FILES = 10;
+	
+	/**
+	 * Searches the file system for readable files and returns the contents of some of them.
+	 * @param maxDepth The maximum depth of the files to search, relative to the file system roots
+	 * @param timeBudget The maximum time to spend on searching files, in milliseconds. This doesn't include
+	 * the time needed to read the selected files.
+	 * @return The concatenated contents of the selected files, at least 32 bytes
+	 * @throws IOException If no readable files were found or if they don't contain enough bytes
+	 */
+	static byte[] harvest(int maxDepth, long timeBudget) throws IOException {
+		EntropyHarvester harvester = new EntropyHarvester(maxDepth, System.nanoTime() + timeBudget * 1000000);
+		harvester.search();
+		return harvester.readSelection();
+	}
+	
+	private final int maxDepth;
+	private final long deadline;
+	
+	private final Queue<Path> files = new ConcurrentLinkedQueue<Path>();
+	private final AtomicInteger fileCount = new AtomicInteger();
+	
+	private EntropyHarvester(int maxDepth, long deadline) {
+		this.maxDepth = maxDepth;
+		this.deadline = deadline;
+	}
+	
+	private boolean isDone() {
+		return fileCount.get() >= MAX_FILES || System.nanoTime() - deadline > 0;
+	}
+	
+	private void consider(Path file, BasicFileAttributes attributes) {
+		long length = attributes.size();
+		if (attributes.isRegularFile() && length >= MIN_USABLE_FILE_LENGTH && length <= MAX_USABLE_FILE_LENGTH
+				&& Files.isReadable(file) && fileCount.getAndIncrement() < MAX_FILES) {
+			files.add(file);
+		}
+	}
+	
+	private void search() {
+		List<Path> starts = new ArrayList<Path>();
+		try {
+			for (Path root : FileSystems.getDefault().getRootDirectories()) {
+				starts.add(root);
+			}
+		} catch (SecurityException sec) {
+			// We will have to do it with local files
+		}
+		if (starts.isEmpty()) {
+			starts.add(Paths.get("").toAbsolutePath());
+		}
+		
+		// Consider the files in the start directories right away and search their subdirectories in parallel
+		List<Path> directories = new ArrayList<Path>();
+		for (Path start : starts) {
+			try (DirectoryStream<Path> children = Files.newDirectoryStream(start)) {
+				for (Path child : children) {
+					BasicFileAttributes attributes;
+					try {
+						attributes = Files.readAttributes(child, BasicFileAttributes.class);
+					} catch (IOException | SecurityException ex) {
+						
+						// Probably a broken link or something we are not allowed to read, so skip only this child
+						continue;
+					}
+					if (attributes.isDirectory()) {
+						directories.add(child);
+					} else {
+						consider(child, attributes);
+					}
+				}
+			} catch (IOException | SecurityException ex) {
+				// Alright, let's stay out of this one
+			}
+		}
+		if (maxDepth > 1) {
+			directories.parallelStream().forEach(this::walk);
+		}
+	}
+	
+	private void walk(Path directory) {
+		try {
+			Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), maxDepth - 1, new SimpleFileVisitor<Path>() {
+				
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+					return isDone() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+				}
+				
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+					if (isDone()) {
+						return FileVisitResult.TERMINATE;
+					}
+					consider(file, attributes);
+					return FileVisitResult.CONTINUE;
+				}
+				
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException ioex) {
+					
+					// We are probably not allowed to read it
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException | SecurityException ex) {
+			// Then we will use the files we found so far
+		}
+	}
+	
+	private byte[] readSelection() throws IOException {
+		List<Path> candidates = new ArrayList<Path>(files);
+		if (candidates.isEmpty()) {
+			throw new IOException("Not a single readable file was found");
+		}
+		
+		List<Path> selected;
+		if (candidates.size() < MIN_SELECTION_FILES) {
+			
+			// Don't be picky, use all files we got!
+			selected = candidates;
+		} else {
+			
+			// Use a simple Random to select which files we will use
+			Random selector = new PseudoRandom(PseudoRandom.Configuration.LEGACY);
+			int selectedAmount = Math.min(MAX_SELECTED_FILES, candidates.size());
+			for (int index = 0; index < selectedAmount; index++) {
+				int nextIndex = index + selector.nextInt(candidates.size() - index);
+				Path next = candidates.get(nextIndex);
+				candidates.set(nextIndex, candidates.get(index));
+				candidates.set(index, next);
+			}
+			selected = candidates.subList(0, selectedAmount);
+		}
+		
+		byte[][] contents = selected.parallelStream().map(EntropyHarvester::read).toArray(byte[][]::new);
+		int totalLength = 0;
+		for (byte[] content : contents) {
+			totalLength += content.length;
+		}
+		if (totalLength < MIN_USABLE_FILE_LENGTH) {
+			throw new IOException("The readable files only contain " + totalLength + " bytes");
+		}
+		byte[] result = new byte[totalLength];
+		int byteIndex = 0;
+		for (byte[] content : contents) {
+			System.arraycopy(content, 0, result, byteIndex, content.length);
+			byteIndex += content.length;
+		}
+		return result;
+	}
+	
+	private static byte[] read(Path file) {
+		try {
+			return Files.readAllBytes(file);
+		} catch (IOException | SecurityException ex) {
+			
+			// The file may have been changed or removed since we found it
+			return new byte[0];
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package nl.knokko.util.random;
 
+import java.nio.ByteBuffer;
+
 public class FakeRandom extends Random {
 
 	@Override
@@ -7,6 +9,16 @@ public class FakeRandom extends Random {
 		return true;
 	}
 
+	@Override
+	void writeState(ByteBuffer buffer) {
+		// A FakeRandom doesn't have any state
+	}
+
+	@Override
+	int getStateSize() {
+		return 0;
+	}
+
 	@Override
 	public boolean isPseudo() {
 		return true;
@@ -16,4 +28,9 @@ public class FakeRandom extends Random {
 	public Random clone() {
 		return new FakeRandom();
 	}
+
+	@Override
+	public Random split() {
+		return new FakeRandom();
+	}
 }
\ No newline at end of file
@@ -0,0 +1,198 @@
+package nl.knokko.util.random;
+
+import java.util.List;
+
+/**
+ * Generates bounded random ints while using as few random bits of its source as possible. This is useful
+ * when the source is expensive, like a PseudoRandom with the LEGACY configuration or a CrazyRandom.
+ *
+ * Random.nextInt(bound) needs at least a whole word of random bits per result and throws those bits away
+ * afterwards. This sampler instead keeps a uniformly distributed value in a range [0, range> between calls.
+ * When an int in [0, bound> is requested, the value is divided by the bound: the remainder is the result
+ * and the quotient is still uniformly distributed in [0, range / bound>, so it will be used for the next
+ * calls. New bits are only taken from the source when the range becomes too small. The rare values that
+ * don't fit in a whole multiple of the bound are not thrown away either, because they are uniformly
+ * distributed in a smaller range. On average, this sampler uses very close to log2(bound) bits per result.
+ *
+ * Just like the instances of Random, a FrugalSampler should not be used by multiple threads at the same
+ * time.
+ * @author knokko
+ *
+ */
+public class FrugalSampler {
+
+	/**
+	 * The range is kept below 2^62, so the range and the value always fit in a positive long
+	 */
+	private static final int MAX_RANGE_BITS = 62;
+
+	/**
+	 * Bits are taken from the source until the range is at least 2^30 times the bound, which makes the
+	 * chance that a value doesn't fit in a whole multiple of the bound negligible. Since a full range is at
+	 * least 2^61 and the bound is smaller than 2^31, a full range is always large enough.
+	 */
+	private static final int SAFETY_BITS = 30;
+
+	private final Random source;
+
+	private long value;
+	private long range = 1;
+
+	private long consumedBits;
+	private long samples;
+
+	/**
+	 * @param source The random to take the random bits from
+	 */
+	public FrugalSampler(Random source) {
+		this.source = source;
+	}
+
+	/**
+	 * Generates a random int in the range [0, bound>. Every int in that range has exactly the same chance
+	 * to be generated.
+	 *
+	 * @param bound The bound, which is the maximum result + 1
+	 * @return a random int in the range [0, bound>
+	 * @throws IllegalArgumentException if bound is not positive
+	 */
+	public int nextInt(int bound) {
+		if (bound <= 0)
+			throw new IllegalArgumentException("The bound must be positive, but is " + bound);
+		samples++;
+		while (true) {
+			if ((range >>> SAFETY_BITS) < bound) {
+				refill();
+			}
+			long quotient = range / bound;
+			long limit = quotient * bound;
+			if (value < limit) {
+				int result = (int) (value % bound);
+				value /= bound;
+				range = quotient;
+				return result;
+			}
+
+			// The value is uniformly distributed in [limit, range>, so it can still be used
+			value -= limit;
+			range -= limit;
+		}
+	}
+
+	/**
+	 * Generates a random int in the range [origin, bound>. Every int in that range has exactly the same
+	 * chance to be generated.
+	 *
+	 * @param origin The minimum result
+	 * @param bound The maximum result + 1
+	 * @return a random int in the range [origin, bound>
+	 * @throws IllegalArgumentException if origin is not smaller than bound or bound - origin is larger than
+	 * Integer.MAX_VALUE
+	 */
+	public int nextInt(int origin, int bound) {
+		if (origin >= bound || bound - origin <= 0)
+			throw new IllegalArgumentException("Can't generate ints between " + origin + " and " + bound);
+		return origin + nextInt(bound - origin);
+	}
+
+	/**
+	 * Rolls a die with the given number of sides.
+	 *
+	 * @param sides The number of sides of the die
+	 * @return a random int between 1 and sides (inclusive)
+	 */
+	public int rollDie(int sides) {
+		return 1 + nextInt(sides);
+	}
+
+	/**
+	 * Rolls the given amount of dice with the given number of sides and returns the sum of the results.
+	 *
+	 * @param amount The number of dice to roll
+	 * @param sides The number of sides of each die
+	 * @return the sum of the results of the dice
+	 */
+	public int rollDice(int amount, int sides) {
+		int sum = 0;
+		for (int counter = 0; counter < amount; counter++) {
+			sum += rollDie(sides);
+		}
+		return sum;
+	}
+
+	/**
+	 * Shuffles the given array using the Fisher-Yates algorithm. Every permutation has exactly the same
+	 * chance, and the number of used bits is close to log2(array.length!).
+	 *
+	 * @param array The array to shuffle
+	 */
+	public void shuffle(int[] array) {
+		for (int index = array.length - 1; index > 0; index--) {
+			int other = nextInt(index + 1);
+			int temp = array[index];
+			array[index] = array[other];
+			array[other] = temp;
+		}
+	}
+
+	/**
+	 * Shuffles the given array using the Fisher-Yates algorithm. Every permutation has exactly the same
+	 * chance, and the number of used bits is close to log2(array.length!).
+	 *
+	 * @param array The array to shuffle
+	 */
+	public void shuffle(Object[] array) {
+		for (int index = array.length - 1; index > 0; index--) {
+			int other = nextInt(index + 1);
+			Object temp = array[index];
+			array[index] = array[other];
+			array[other] = temp;
+		}
+	}
+
+	/**
+	 * Shuffles the given list using the Fisher-Yates algorithm. Every permutation has exactly the same
+	 * chance, and the number of used bits is close to log2(list.size()!). The list should support fast
+	 * random access.
+	 *
+	 * @param list The list to shuffle
+	 */
+	public <T> void shuffle(List<T> list) {
+		for (int index = list.size() - 1; index > 0; index--) {
+			int other = nextInt(index + 1);
+			list.set(other, list.set(index, list.get(other)));
+		}
+	}
+
+	/**
+	 * Takes as many bits from the source as the range can hold
+	 */
+	private void refill() {
+		int amount = MAX_RANGE_BITS - (64 - Long.numberOfLeadingZeros(range));
+		value = (value << amount) | source.nextBits(amount);
+		range <<= amount;
+		consumedBits += amount;
+	}
+
+	/**
+	 * @return the total number of bits that this sampler took from its source
+	 */
+	public long getConsumedBits() {
+		return consumedBits;
+	}
+
+	/**
+	 * @return the number of bounded ints that this sampler generated (including the ints for dice rolls and
+	 * shuffles)
+	 */
+	public long getSamples() {
+		return samples;
+	}
+
+	/**
+	 * @return the number of random bits in the buffer of this sampler that have not been used yet
+	 */
+	public double getBufferedBits() {
+		return Math.log(range) / Math.log(2);
+	}
+}
@@ -1,41 +1,85 @@
 package nl.knokko.util.random;
 
+import java.nio.ByteBuffer;
+
 public abstract class IntBasedRandom extends Random {
-	
-	private static final int MAX_POWER_VALUE = Integer.MAX_VALUE / 2 + 1;
-	
+
+	/**
+	 * The bits of the last generated int that have not been returned yet, in the order in which they will
+	 * be returned by next(): the next bit is the least significant bit.
+	 */
 	private int current;
-	private int currentPowerValue;
+	private int remainingBits;
 
 	@Override
 	public boolean next() {
-		if (currentPowerValue == 0) {
-			
-			// Set currentPowerValue to 2^30
-			currentPowerValue = MAX_POWER_VALUE;
-			current = nextInt();
-			if (current < 0) {
-				current++;
-				current += Integer.MAX_VALUE;
-				return false;
-			} else {
-				return true;
-			}
-		} else {
-			boolean result;
-			if (current >= currentPowerValue) {
-				current -= currentPowerValue;
-				result = true;
-			} else {
-				result = false;
+		if (remainingBits == 0) {
+			refill();
+		}
+		boolean result = (current & 1) != 0;
+		current >>>= 1;
+		remainingBits--;
+		return result;
+	}
+
+	@Override
+	public long nextBits(int amount) {
+		long result = 0;
+		int filledBits = 0;
+		while (filledBits < amount) {
+			if (remainingBits == 0) {
+				refill();
 			}
-			
-			// Observe that 1 / 2 = 0 with integer division
-			currentPowerValue /= 2;
-			return result;
+			int takenBits = Math.min(amount - filledBits, remainingBits);
+			long taken = (current & 0xFFFFFFFFL) & (-1L >>> (64 - takenBits));
+			result |= taken << filledBits;
+			current = takenBits == 32 ? 0 : current >>> takenBits;
+			remainingBits -= takenBits;
+			filledBits += takenBits;
 		}
+		return result;
+	}
+
+	/**
+	 * The first bit of an int is true if the int is not negative and the remaining 31 bits are the
+	 * binary digits of the int (ignoring its sign), starting with the most significant digit.
+	 */
+	private void refill() {
+		current = Integer.reverse(nextInt() ^ Integer.MIN_VALUE);
+		remainingBits = 32;
 	}
-	
+
+	/**
+	 * Writes the bits of the last generated int that have not been returned yet, for snapshots.
+	 */
+	void writeBitState(ByteBuffer buffer) {
+		buffer.putInt(current);
+		buffer.put((byte) remainingBits);
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the number of remaining bits is not between 0 and 32
+	 */
+	void readBitState(ByteBuffer buffer) {
+		int bits = buffer.getInt();
+		int remaining = buffer.get();
+		if (remaining < 0 || remaining > 32)
+			throw new IllegalArgumentException("Invalid number of remaining bits " + remaining);
+		current = bits;
+		remainingBits = remaining;
+	}
+
+	static final int BIT_STATE_SIZE = 4 + 1;
+
+	/**
+	 * Copies the bits of the last generated int that have not been returned yet from the given random, for
+	 * clones.
+	 */
+	void copyBitState(IntBasedRandom original) {
+		current = original.current;
+		remainingBits = original.remainingBits;
+	}
+
 	@Override
 	public abstract int nextInt();
 }
\ No newline at end of file
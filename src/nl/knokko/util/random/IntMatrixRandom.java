@@ -1,5 +1,10 @@
 package nl.knokko.util.random;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import nl.knokko.util.bits.BitHelper;
 
 public class IntMatrixRandom extends IntBasedRandom {
@@ -12,7 +17,25 @@ public class IntMatrixRandom extends IntBasedRandom {
 	
 	private int nextIndex;
 	
+	private final OutputMode outputMode;
+	
+	/**
+	 * The ints that were extracted from the last squared matrix, only used by the high yield output modes
+	 */
+	private final int[] outputBuffer;
+	private int outputIndex;
+	
+	/**
+	 * The total number of element pairs that have been extracted from the matrix, only used by the high
+	 * yield output modes
+	 */
+	private long pairCounter;
+	
 	public IntMatrixRandom(int length, int[] startContents, int startOffset) {
+		this(length, startContents, startOffset, OutputMode.CLASSIC);
+	}
+	
+	public IntMatrixRandom(int length, int[] startContents, int startOffset, OutputMode outputMode) {
 		if (length <= 1) throw new IllegalArgumentException("Length must be at least 2, but is " + length);
 		this.length = length;
 		this.arrayLength = length * length;
@@ -21,14 +44,24 @@ public class IntMatrixRandom extends IntBasedRandom {
 		System.arraycopy(startContents, startOffset, tempBuffer, 0, arrayLength);
 		System.arraycopy(startContents, startOffset, matrixData, 0, arrayLength);
 		// nextIndex = 0 by default
+		this.outputMode = outputMode;
+		this.outputBuffer = outputMode == OutputMode.CLASSIC ? null : new int[arrayLength & -2];
+		this.outputIndex = outputBuffer == null ? 0 : outputBuffer.length;
 	}
 	
 	public IntMatrixRandom(int length, long seed) {
+		this(length, seed, OutputMode.CLASSIC);
+	}
+	
+	public IntMatrixRandom(int length, long seed, OutputMode outputMode) {
 		if (length <= 1) throw new IllegalArgumentException("Length must be at least 2, but is " + length);
 		this.length = length;
 		this.arrayLength = length * length;
 		this.tempBuffer = new int[arrayLength];
 		this.matrixData = new int[arrayLength];
+		this.outputMode = outputMode;
+		this.outputBuffer = outputMode == OutputMode.CLASSIC ? null : new int[arrayLength & -2];
+		this.outputIndex = outputBuffer == null ? 0 : outputBuffer.length;
 		for (int index = 0; index < arrayLength; index++) {
 			tempBuffer[index] = (int) (seed);
 			matrixData[index] = (int) (seed);
@@ -43,35 +76,135 @@ public class IntMatrixRandom extends IntBasedRandom {
 		// nextIndex = 0 by default
 	}
 	
+	/**
+	 * Matrices with at least this length are squared by multiple threads of the common ForkJoinPool
+	 */
+	private static final int PARALLEL_LENGTH = 96;
+	
+	/**
+	 * The number of result columns that are computed together, so that every column of the matrix is only
+	 * loaded once per block instead of once per result column
+	 */
+	private static final int COLUMN_BLOCK = 8;
+	
+	/**
+	 * Stores the square of the matrix in tempBuffer. The matrix is stored column by column: element (row,
+	 * column) is at index row + length * column. A column of the square is a linear combination of the
+	 * columns of the matrix, so the innermost loop walks over 2 contiguous columns, which the JIT can
+	 * vectorize. Since int overflow wraps around, the order of the additions doesn't affect the result.
+	 */
 	private void square() {
-		for (int x = 0; x < length; x++) {
-			for (int y = 0; y < length; y++) {
-				int sum = 0;
-				for (int i = 0; i < length; i++) {
-					sum += matrixData[x + length * i] * matrixData[i + length * y];
+		if (length >= PARALLEL_LENGTH) {
+			ForkJoinPool.commonPool().invoke(new SquareTask(matrixData, tempBuffer, length, 0, length));
+		} else {
+			squareColumns(matrixData, tempBuffer, length, 0, length);
+		}
+	}
+	
+	/**
+	 * Computes the columns firstColumn (inclusive) until endColumn (exclusive) of the square of the matrix
+	 */
+	private static void squareColumns(int[] matrix, int[] result, int length, int firstColumn, int endColumn) {
+		for (int blockStart = firstColumn; blockStart < endColumn; blockStart += COLUMN_BLOCK) {
+			int blockEnd = Math.min(blockStart + COLUMN_BLOCK, endColumn);
+			Arrays.fill(result, blockStart * length, blockEnd * length, 0);
+			for (int i = 0; i < length; i++) {
+				int sourceOffset = length * i;
+				for (int column = blockStart; column < blockEnd; column++) {
+					int factor = matrix[i + length * column];
+					int resultOffset = length * column;
+					for (int row = 0; row < length; row++) {
+						result[resultOffset + row] += matrix[sourceOffset + row] * factor;
+					}
 				}
-				tempBuffer[x + y * length] = sum;
 			}
 		}
-		System.arraycopy(tempBuffer, 0, matrixData, 0, length * length);
 	}
 	
+	/**
+	 * Copies the square in tempBuffer back to the matrix and adds nextIndex to every element
+	 */
 	private void increment() {
 		for (int index = 0; index < arrayLength; index++) {
-			tempBuffer[index] += nextIndex;
-			matrixData[index] += nextIndex;
+			matrixData[index] = tempBuffer[index] + nextIndex;
 		}
 		if (++nextIndex == arrayLength) {
 			nextIndex = 0;
 		}
 	}
 	
+	private static class SquareTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] matrix, result;
+		private final int length;
+		private final int firstColumn, endColumn;
+		
+		SquareTask(int[] matrix, int[] result, int length, int firstColumn, int endColumn) {
+			this.matrix = matrix;
+			this.result = result;
+			this.length = length;
+			this.firstColumn = firstColumn;
+			this.endColumn = endColumn;
+		}
+
+		@Override
+		protected void compute() {
+			if (endColumn - firstColumn > 2 * COLUMN_BLOCK) {
+				// Split at a multiple of COLUMN_BLOCK so that no block is cut in half
+				int middle = firstColumn + ((endColumn - firstColumn) / (2 * COLUMN_BLOCK)) * COLUMN_BLOCK;
+				invokeAll(new SquareTask(matrix, result, length, firstColumn, middle),
+						new SquareTask(matrix, result, length, middle, endColumn));
+			} else {
+				squareColumns(matrix, result, length, firstColumn, endColumn);
+			}
+		}
+	}
+	
+	/**
+	 * Fills the output buffer with ints extracted from the current matrix. The elements of the matrix are
+	 * taken in pairs, which are combined into a long, offset by pairCounter times SEED_GAMMA, and scrambled
+	 * with the finalizer of SplitMix64. Every pair gives 2 output ints.
+	 * 
+	 * For some seeds, the matrix ends up in a cycle of only length * length squarings. Because pairCounter
+	 * is different for every extracted pair, the output doesn't repeat when that happens: at worst, it
+	 * becomes as good as the output of SplitMix64.
+	 */
+	private void extractOutput() {
+		int[] output = outputBuffer;
+		long counter = pairCounter;
+		for (int index = 0; index < output.length; index += 2) {
+			long pair = (long) matrixData[index] << 32 | (matrixData[index + 1] & 0xFFFFFFFFL);
+			long mixed = mixSeed(pair + counter++ * SEED_GAMMA);
+			output[index] = (int) mixed;
+			output[index + 1] = (int) (mixed >>> 32);
+		}
+		pairCounter = counter;
+		outputIndex = 0;
+	}
+	
 	public int[] getBackingArray() {
 		return matrixData;
 	}
+	
+	/**
+	 * @return the output mode of this random
+	 */
+	public OutputMode getOutputMode() {
+		return outputMode;
+	}
 
 	@Override
 	public int nextInt() {
+		if (outputBuffer != null) {
+			if (outputIndex == outputBuffer.length) {
+				square();
+				increment();
+				extractOutput();
+			}
+			return outputBuffer[outputIndex++];
+		}
 		square();
 		increment();
 		byte b0 = 0;
@@ -91,6 +224,66 @@ public class IntMatrixRandom extends IntBasedRandom {
 		return BitHelper.makeInt(b0, b1, b2, b3);
 	}
 
+	@Override
+	void writeState(ByteBuffer buffer) {
+		buffer.putInt(length);
+		buffer.putInt(nextIndex);
+		for (int value : matrixData) {
+			buffer.putInt(value);
+		}
+		if (outputBuffer != null) {
+			// The output buffer only depends on the matrix, so it can be restored from the matrix
+			buffer.put(outputMode.id);
+			buffer.putLong(pairCounter);
+			buffer.putInt(outputIndex);
+		}
+		writeBitState(buffer);
+	}
+
+	@Override
+	int getStateSize() {
+		return 2 * 4 + 4 * arrayLength + BIT_STATE_SIZE + (outputBuffer != null ? 1 + 8 + 4 : 0);
+	}
+
+	/**
+	 * Reads the state that was written by writeState
+	 * @param hasOutputMode true if the state was written by an IntMatrixRandom with a high yield output mode
+	 */
+	static IntMatrixRandom readState(ByteBuffer buffer, boolean hasOutputMode) {
+		int length = buffer.getInt();
+		int nextIndex = buffer.getInt();
+		int[] contents = new int[length * length];
+		for (int index = 0; index < contents.length; index++) {
+			contents[index] = buffer.getInt();
+		}
+		OutputMode outputMode = hasOutputMode ? OutputMode.fromId(buffer.get()) : OutputMode.CLASSIC;
+		IntMatrixRandom result = new IntMatrixRandom(length, contents, 0, outputMode);
+		result.nextIndex = nextIndex;
+		if (hasOutputMode) {
+			long pairCounter = buffer.getLong();
+			int outputIndex = buffer.getInt();
+			int bufferLength = result.outputBuffer.length;
+			if (outputIndex < 0 || outputIndex > bufferLength)
+				throw new IllegalArgumentException("Invalid output index " + outputIndex);
+			result.restoreOutput(pairCounter, outputIndex);
+		}
+		result.readBitState(buffer);
+		return result;
+	}
+	
+	/**
+	 * Restores the output buffer of a high yield output mode. The output buffer only depends on the matrix
+	 * and the pair counter it was extracted with, so it is extracted again.
+	 */
+	private void restoreOutput(long pairCounter, int outputIndex) {
+		if (outputIndex < outputBuffer.length) {
+			this.pairCounter = pairCounter - outputBuffer.length / 2;
+			extractOutput();
+		}
+		this.pairCounter = pairCounter;
+		this.outputIndex = outputIndex;
+	}
+
 	@Override
 	public boolean isPseudo() {
 		return true;
@@ -98,6 +291,66 @@ public class IntMatrixRandom extends IntBasedRandom {
 
 	@Override
 	public IntMatrixRandom clone() {
-		return new IntMatrixRandom(length, matrixData, 0);
+		IntMatrixRandom clone = new IntMatrixRandom(length, matrixData, 0, outputMode);
+		clone.nextIndex = nextIndex;
+		if (outputBuffer != null) {
+			clone.restoreOutput(pairCounter, outputIndex);
+		}
+		clone.copyBitState(this);
+		return clone;
+	}
+
+	/**
+	 * Creates an IntMatrixRandom with the same length and output mode, seeded by the next long of this
+	 * IntMatrixRandom.
+	 */
+	@Override
+	public IntMatrixRandom split() {
+		return new IntMatrixRandom(length, mixSeed(nextLong()), outputMode);
+	}
+	
+	/**
+	 * Determines how the output ints of an IntMatrixRandom are derived from its matrix. Every output mode
+	 * will keep producing exactly the same ints for the same seed: improvements will be added as new
+	 * output modes with a higher version.
+	 */
+	public static final class OutputMode {
+		
+		/**
+		 * The original output mode. After every squaring, all elements of the matrix are folded into a
+		 * single int. This mode is the default.
+		 */
+		public static final OutputMode CLASSIC = new OutputMode((byte) 0, "CLASSIC");
+		
+		/**
+		 * After every squaring, the elements of the matrix are scrambled in pairs (together with a counter)
+		 * with the finalizer of SplitMix64, which gives length * length output ints (or 1 less when length
+		 * is odd). This makes
+		 * the number of ints per squaring grow with the size of the matrix, so the time per output int
+		 * grows linearly with the length instead of cubically.
+		 */
+		public static final OutputMode HIGH_YIELD_V1 = new OutputMode((byte) 1, "HIGH_YIELD_V1");
+		
+		private final byte id;
+		private final String name;
+		
+		private OutputMode(byte id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+		
+		private static OutputMode fromId(byte id) {
+			for (OutputMode mode : new OutputMode[] { CLASSIC, HIGH_YIELD_V1 }) {
+				if (mode.id == id) {
+					return mode;
+				}
+			}
+			throw new IllegalArgumentException("Unknown output mode " + id);
+		}
+		
+		@Override
+		public String toString() {
+			return name;
+		}
 	}
 }
\ No newline at end of file
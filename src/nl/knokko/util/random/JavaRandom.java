@@ -5,6 +5,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A subclass of nl.knokko.util.Random that uses an instance of java.util.Random to produce random numbers.
@@ -12,21 +13,60 @@ import java.io.ObjectOutputStream;
  * @author knokko
  *
  */
-public class JavaRandom extends Random {
+public class JavaRandom extends LongBasedRandom {
+	
+	/**
+	 * The modes in snapshots. Word based snapshots of older versions have mode 1 and no buffered bits.
+	 */
+	private static final byte MODE_BITS = 0;
+	private static final byte MODE_OLD_WORDS = 1;
+	private static final byte MODE_WORDS = 2;
 	
 	private final java.util.Random backingRandom;
+	private final boolean wordBased;
 	
 	public JavaRandom() {
 		this(new java.util.Random());
 	}
 	
 	public JavaRandom(java.util.Random backingRandom) {
+		this(backingRandom, false);
+	}
+	
+	/**
+	 * @param backingRandom The java.util.Random to obtain the random numbers from
+	 * @param wordBased If false, every bit will be obtained by a call to backingRandom.nextBoolean(), like the
+	 * other constructors do. If true, the bits will be taken from the results of backingRandom.nextLong(),
+	 * starting with the least significant bit of every result. That is much faster, but generates other
+	 * values than a JavaRandom that is not word based.
+	 */
+	public JavaRandom(java.util.Random backingRandom, boolean wordBased) {
 		this.backingRandom = backingRandom;
+		this.wordBased = wordBased;
+	}
+
+	@Override
+	protected long nextWord() {
+		return backingRandom.nextLong();
 	}
 
 	@Override
 	public boolean next() {
-		return backingRandom.nextBoolean();
+		return wordBased ? super.next() : backingRandom.nextBoolean();
+	}
+	
+	@Override
+	public long nextBits(int amount) {
+		if (wordBased) {
+			return super.nextBits(amount);
+		}
+		long result = 0;
+		for (int index = 0; index < amount; index++) {
+			if (backingRandom.nextBoolean()) {
+				result |= 1L << index;
+			}
+		}
+		return result;
 	}
 
 	@Override
@@ -38,21 +78,82 @@ public class JavaRandom extends Random {
 	public Random clone() {
 		
 		// Copy the backing random...
-		java.util.Random randomCopy;
+		java.util.Random randomCopy = deserialize(serialize(backingRandom));
+		
+		// And finally return the copy
+		JavaRandom clone = new JavaRandom(randomCopy, wordBased);
+		clone.copyBitState(this);
+		return clone;
+	}
+
+	/**
+	 * Creates a JavaRandom with a new java.util.Random that is seeded by the next long of the backing random.
+	 * The child will be word based if and only if this JavaRandom is word based.
+	 */
+	@Override
+	public JavaRandom split() {
+		return new JavaRandom(new java.util.Random(mixSeed(backingRandom.nextLong())), wordBased);
+	}
+	
+	@Override
+	void writeState(ByteBuffer buffer) {
+		
+		// The state of java.util.Random is private, so serialization is the only way to get it
+		byte[] serialized = serialize(backingRandom);
+		buffer.put(wordBased ? MODE_WORDS : MODE_BITS);
+		buffer.putInt(serialized.length);
+		buffer.put(serialized);
+		if (wordBased) {
+			writeBitState(buffer);
+		}
+	}
+	
+	@Override
+	int getStateSize() {
+		return 1 + 4 + serialize(backingRandom).length + (wordBased ? BIT_STATE_SIZE : 0);
+	}
+	
+	static JavaRandom readState(ByteBuffer buffer) {
+		byte mode = buffer.get();
+		if (mode != MODE_BITS && mode != MODE_OLD_WORDS && mode != MODE_WORDS)
+			throw new IllegalArgumentException("Unknown JavaRandom mode " + mode);
+		byte[] serialized = new byte[buffer.getInt()];
+		buffer.get(serialized);
+		JavaRandom result;
+		try {
+			ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serialized));
+			result = new JavaRandom((java.util.Random) ois.readObject(), mode != MODE_BITS);
+		} catch (IOException | ClassNotFoundException | ClassCastException ex) {
+			throw new IllegalArgumentException("Invalid JavaRandom state", ex);
+		}
+		
+		// Older word based snapshots didn't have buffered bits, so they start at a new word
+		if (mode == MODE_WORDS) {
+			result.readBitState(buffer);
+		}
+		return result;
+	}
+	
+	private static byte[] serialize(java.util.Random random) {
 		try {
 			ByteArrayOutputStream bo = new ByteArrayOutputStream();
 			ObjectOutputStream oos = new ObjectOutputStream(bo);
-			oos.writeObject(backingRandom);
+			oos.writeObject(random);
 			oos.close();
-			ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bo.toByteArray()));
-			randomCopy = (java.util.Random) (ois.readObject());
+			return bo.toByteArray();
+		} catch (IOException ioex) {
+			throw new Error("Shouldn't happen", ioex);
+		}
+	}
+	
+	private static java.util.Random deserialize(byte[] serialized) {
+		try {
+			ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serialized));
+			return (java.util.Random) (ois.readObject());
 		} catch (IOException ioex) {
 			throw new Error("Shouldn't happen", ioex);
 		} catch (ClassNotFoundException cnfe) {
 			throw new Error("Shoulnd't happen", cnfe);
 		}
-		
-		// And finally return the copy
-		return new JavaRandom(randomCopy);
 	}
 }
\ No newline at end of file
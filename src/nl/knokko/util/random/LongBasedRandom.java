@@ -0,0 +1,88 @@
+package nl.knokko.util.random;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A Random whose bits come from 64-bit words. The bits of every word are returned in order, starting with
+ * the least significant bit. When nextBits(64) is called at the start of a word, the word is returned as a
+ * whole, without splitting it into bits.
+ * @author knokko
+ *
+ */
+public abstract class LongBasedRandom extends Random {
+
+	/**
+	 * The bits of the current word that have not been returned yet, starting at the least significant bit
+	 */
+	private long current;
+	private int remainingBits;
+
+	/**
+	 * @return the next 64-bit word
+	 */
+	protected abstract long nextWord();
+
+	@Override
+	public boolean next() {
+		if (remainingBits == 0) {
+			current = nextWord();
+			remainingBits = 64;
+		}
+		boolean result = (current & 1) != 0;
+		current >>>= 1;
+		remainingBits--;
+		return result;
+	}
+
+	@Override
+	public long nextBits(int amount) {
+		if (amount == 64 && remainingBits == 0) {
+			return nextWord();
+		}
+		long result = 0;
+		int filledBits = 0;
+		while (filledBits < amount) {
+			if (remainingBits == 0) {
+				current = nextWord();
+				remainingBits = 64;
+			}
+			int takenBits = Math.min(amount - filledBits, remainingBits);
+			long taken = takenBits == 64 ? current : current & ((1L << takenBits) - 1);
+			result |= taken << filledBits;
+			current = takenBits == 64 ? 0 : current >>> takenBits;
+			remainingBits -= takenBits;
+			filledBits += takenBits;
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the bits of the current word that have not been returned yet, for snapshots.
+	 */
+	void writeBitState(ByteBuffer buffer) {
+		buffer.putLong(current);
+		buffer.put((byte) remainingBits);
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the number of remaining bits is not between 0 and 64
+	 */
+	void readBitState(ByteBuffer buffer) {
+		long bits = buffer.getLong();
+		int remaining = buffer.get();
+		if (remaining < 0 || remaining > 64)
+			throw new IllegalArgumentException("Invalid number of remaining bits " + remaining);
+		current = bits;
+		remainingBits = remaining;
+	}
+
+	static final int BIT_STATE_SIZE = 8 + 1;
+
+	/**
+	 * Copies the bits of the current word that have not been returned yet from the given random, for clones
+	 */
+	void copyBitState(LongBasedRandom original) {
+		current = original.current;
+		remainingBits = original.remainingBits;
+	}
+}
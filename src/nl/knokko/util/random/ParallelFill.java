@@ -0,0 +1,177 @@
+package nl.knokko.util.random;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fills large arrays and buffers with random values using multiple threads. The target is divided into
+ * chunks of CHUNK_BYTES bytes and every chunk is filled by its own generator. These generators are obtained
+ * by splitting the source generator once per chunk (see Random.split()), in order, before any chunk is
+ * filled. Because the chunk size is fixed and the splits always happen in the same order, the result only
+ * depends on the state of the source generator: the same pseudo random source will give bit-identical
+ * results no matter how many threads are used or on which machine it runs.
+ *
+ * The source generator is only used by the calling thread (to split it), so it doesn't need to be thread
+ * safe. It must support split().
+ * @author knokko
+ *
+ */
+public final class ParallelFill {
+
+	/**
+	 * The number of bytes that will be filled by a single generator. Changing this would change the
+	 * results, so it must stay the same.
+	 */
+	public static final int CHUNK_BYTES = 1 << 16;
+
+	private ParallelFill() {}
+
+	public static void fill(Random source, byte[] target) {
+		fill(source, target, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Fills the target with the values that nextByte() of the generators of the chunks would return.
+	 */
+	public static void fill(Random source, byte[] target, ForkJoinPool pool) {
+		fill(source, target.length, Byte.BYTES, pool, (random, start, end) -> {
+			for (int index = start; index < end; index++) {
+				target[index] = random.nextByte();
+			}
+		});
+	}
+
+	public static void fill(Random source, int[] target) {
+		fill(source, target, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Fills the target with the values that nextInt() of the generators of the chunks would return.
+	 */
+	public static void fill(Random source, int[] target, ForkJoinPool pool) {
+		fill(source, target.length, Integer.BYTES, pool, (random, start, end) -> {
+			for (int index = start; index < end; index++) {
+				target[index] = random.nextInt();
+			}
+		});
+	}
+
+	public static void fill(Random source, long[] target) {
+		fill(source, target, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Fills the target with the values that nextLong() of the generators of the chunks would return.
+	 */
+	public static void fill(Random source, long[] target, ForkJoinPool pool) {
+		fill(source, target.length, Long.BYTES, pool, (random, start, end) -> {
+			for (int index = start; index < end; index++) {
+				target[index] = random.nextLong();
+			}
+		});
+	}
+
+	public static void fill(Random source, float[] target) {
+		fill(source, target, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Fills the target with the values that nextFloat() of the generators of the chunks would return.
+	 */
+	public static void fill(Random source, float[] target, ForkJoinPool pool) {
+		fill(source, target.length, Float.BYTES, pool, (random, start, end) -> {
+			for (int index = start; index < end; index++) {
+				target[index] = random.nextFloat();
+			}
+		});
+	}
+
+	public static void fill(Random source, double[] target) {
+		fill(source, target, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Fills the target with the values that nextDouble() of the generators of the chunks would return.
+	 */
+	public static void fill(Random source, double[] target, ForkJoinPool pool) {
+		fill(source, target.length, Double.BYTES, pool, (random, start, end) -> {
+			for (int index = start; index < end; index++) {
+				target[index] = random.nextDouble();
+			}
+		});
+	}
+
+	public static void fill(Random source, ByteBuffer target) {
+		fill(source, target, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Fills the remaining bytes of the target with the values that nextByte() of the generators of the chunks
+	 * would return. The position of the target will be moved to its limit.
+	 */
+	public static void fill(Random source, ByteBuffer target, ForkJoinPool pool) {
+		int position = target.position();
+		fill(source, target.remaining(), Byte.BYTES, pool, (random, start, end) -> {
+			for (int index = start; index < end; index++) {
+				target.put(position + index, random.nextByte());
+			}
+		});
+		target.position(target.limit());
+	}
+
+	private static void fill(Random source, int length, int elementSize, ForkJoinPool pool, ChunkFiller filler) {
+		int chunkLength = CHUNK_BYTES / elementSize;
+		int numChunks = (int) ((length + (long) chunkLength - 1) / chunkLength);
+		Random[] generators = new Random[numChunks];
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			generators[chunk] = source.split();
+		}
+		pool.invoke(new FillTask(generators, 0, numChunks, chunkLength, length, filler));
+	}
+
+	@FunctionalInterface
+	private static interface ChunkFiller {
+
+		/**
+		 * Fills the elements from start (inclusive) to end (exclusive) with values of the given random
+		 */
+		void fill(Random random, int start, int end);
+	}
+
+	private static class FillTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Random[] generators;
+		private final int firstChunk, endChunk;
+		private final int chunkLength, length;
+		private final ChunkFiller filler;
+
+		FillTask(Random[] generators, int firstChunk, int endChunk, int chunkLength, int length, ChunkFiller filler) {
+			this.generators = generators;
+			this.firstChunk = firstChunk;
+			this.endChunk = endChunk;
+			this.chunkLength = chunkLength;
+			this.length = length;
+			this.filler = filler;
+		}
+
+		@Override
+		protected void compute() {
+			if (endChunk - firstChunk > 1) {
+				int middle = (firstChunk + endChunk) >>> 1;
+				invokeAll(new FillTask(generators, firstChunk, middle, chunkLength, length, filler),
+						new FillTask(generators, middle, endChunk, chunkLength, length, filler));
+			} else {
+				for (int chunk = firstChunk; chunk < endChunk; chunk++) {
+					int start = chunk * chunkLength;
+					filler.fill(generators[chunk], start, Math.min(start + chunkLength, length));
+
+					// The generator isn't needed anymore, so it can be garbage collected
+					generators[chunk] = null;
+				}
+			}
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package nl.knokko.util.random;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 public class PeriodicRandom extends Random {
@@ -46,6 +47,44 @@ public class PeriodicRandom extends Random {
 		return buffer[0];
 	}
 
+	@Override
+	void writeState(ByteBuffer buffer) {
+		RandomSnapshot.writeRandom(backer, buffer);
+		buffer.putInt(this.buffer.length);
+		buffer.putInt(period);
+		buffer.putInt(counter);
+		buffer.putInt(index);
+		for (int bitIndex = 0; bitIndex < this.buffer.length; bitIndex += 64) {
+			long word = 0;
+			for (int wordIndex = 0; wordIndex < 64 && bitIndex + wordIndex < this.buffer.length; wordIndex++) {
+				if (this.buffer[bitIndex + wordIndex]) {
+					word |= 1L << wordIndex;
+				}
+			}
+			buffer.putLong(word);
+		}
+	}
+
+	@Override
+	int getStateSize() {
+		return RandomSnapshot.getRandomSize(backer) + 4 * 4 + 8 * ((buffer.length + 63) / 64);
+	}
+
+	static PeriodicRandom readState(ByteBuffer buffer) {
+		Random backer = RandomSnapshot.readRandom(buffer);
+		boolean[] bits = new boolean[buffer.getInt()];
+		int period = buffer.getInt();
+		int counter = buffer.getInt();
+		int index = buffer.getInt();
+		for (int bitIndex = 0; bitIndex < bits.length; bitIndex += 64) {
+			long word = buffer.getLong();
+			for (int wordIndex = 0; wordIndex < 64 && bitIndex + wordIndex < bits.length; wordIndex++) {
+				bits[bitIndex + wordIndex] = (word & (1L << wordIndex)) != 0;
+			}
+		}
+		return new PeriodicRandom(backer, bits, period, counter, index);
+	}
+
 	@Override
 	public boolean isPseudo() {
 		return backer.isPseudo();
@@ -55,4 +94,13 @@ public class PeriodicRandom extends Random {
 	public Random clone() {
 		return new PeriodicRandom(backer.clone(), Arrays.copyOf(buffer, buffer.length), period, counter, index);
 	}
+
+	/**
+	 * Creates a PeriodicRandom with the same buffer size and period that is backed by a split of the
+	 * backer of this PeriodicRandom.
+	 */
+	@Override
+	public PeriodicRandom split() {
+		return new PeriodicRandom(backer.split(), buffer.length, period);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+package nl.knokko.util.random;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A Random that reads its words from a pool file that is maintained by a RandomPool, possibly in another
+ * process. The pool file is mapped in memory, so the words are read directly from the page cache that all
+ * processes on the machine share, without copying them.
+ *
+ * Every PooledRandom starts at its own offset in the pool and moves through the pool with its own stride,
+ * so that different processes (or threads) don't return the same words at the same time. The stride must
+ * be odd, so that a pass along the pool visits every word exactly once. Processes should choose their
+ * offsets and strides far apart, for instance by hashing their process id.
+ *
+ * After every complete pass, the pool file is opened again. If the RandomPool has written a new generation
+ * in the meantime, the new generation will be mapped. If not, the same generation will be replayed, so the
+ * pool should be large enough or refreshed often enough to avoid that (see getReplayedPasses()). If the
+ * pool file can't be opened again, the current generation will be replayed.
+ *
+ * The words depend on the generation of the pool at the time they are read, so a PooledRandom is never a
+ * pseudo random number generator.
+ * @author knokko
+ *
+ */
+public class PooledRandom extends LongBasedRandom {
+
+	private final Path file;
+	private final int offset;
+	private final int stride;
+
+	private LongBuffer words;
+	private int mask;
+	private long generation;
+
+	private int position;
+	private int remainingWords;
+	private long replayedPasses;
+
+	/**
+	 * @param file The path of the pool file
+	 * @param offset The index of the first word to read, modulo the number of words in the pool
+	 * @param stride The distance between consecutive words in the pool, must be odd
+	 * @throws IOException If the pool file couldn't be read
+	 * @throws IllegalArgumentException If the stride is even or the file doesn't contain a valid pool
+	 */
+	public PooledRandom(Path file, int offset, int stride) throws IOException {
+		if ((stride & 1) == 0)
+			throw new IllegalArgumentException("The stride must be odd, but is " + stride);
+		this.file = file;
+		this.offset = offset;
+		this.stride = stride;
+		map();
+	}
+
+	private PooledRandom(PooledRandom original) {
+		this.file = original.file;
+		this.offset = original.offset;
+		this.stride = original.stride;
+		this.words = original.words;
+		this.mask = original.mask;
+		this.generation = original.generation;
+		this.position = original.position;
+		this.remainingWords = original.remainingWords;
+		this.replayedPasses = original.replayedPasses;
+		copyBitState(original);
+	}
+
+	/**
+	 * Maps the current generation of the pool file and starts a new pass at the offset
+	 */
+	private void map() throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+			RandomPool.validate(mapped, fileSize);
+			generation = mapped.getLong(8);
+			int wordCount = (int) mapped.getLong(16);
+			words = mapped.position(RandomPool.HEADER_SIZE).slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+			mask = wordCount - 1;
+			position = offset & mask;
+			remainingWords = wordCount;
+		}
+	}
+
+	@Override
+	protected long nextWord() {
+		if (remainingWords == 0) {
+			startPass();
+		}
+		long word = words.get(position);
+		position = (position + stride) & mask;
+		remainingWords--;
+		return word;
+	}
+
+	private void startPass() {
+		long previousGeneration = generation;
+		try {
+			if (RandomPool.readGeneration(file) != previousGeneration) {
+				map();
+				return;
+			}
+		} catch (IOException | IllegalArgumentException unavailable) {
+			// Replay the current generation until the pool file becomes available again
+		}
+		replayedPasses++;
+		position = offset & mask;
+		remainingWords = mask + 1;
+	}
+
+	/**
+	 * Maps the latest generation of the pool file right away, instead of waiting until the current pass is
+	 * complete.
+	 * @throws IOException If the pool file couldn't be read
+	 * @throws IllegalArgumentException If the file doesn't contain a valid pool
+	 */
+	public void reload() throws IOException {
+		map();
+	}
+
+	/**
+	 * @return the generation of the pool that is currently being read
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * @return the number of passes along the pool that had to reuse a generation that was already read
+	 */
+	public long getReplayedPasses() {
+		return replayedPasses;
+	}
+
+	@Override
+	public boolean isPseudo() {
+		return false;
+	}
+
+	/**
+	 * Creates a PooledRandom that reads the same mapping of the pool from the same position, so it will
+	 * return the same words until one of them starts a new pass.
+	 */
+	@Override
+	public PooledRandom clone() {
+		return new PooledRandom(this);
+	}
+}
@@ -0,0 +1,300 @@
+package nl.knokko.util.random;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A Random that generates the words of a slow generator (like a CrazyRandom or a PseudoRandom with the
+ * LEGACY configuration) in advance on a dedicated producer thread, so the threads that use it don't have to
+ * wait for the slow generator.
+ *
+ * The producer thread stores the results of source.nextBits(64) in a ring buffer. It keeps filling the ring
+ * until it contains highWatermark words, and then waits until the consumer has taken enough words to bring
+ * it down to lowWatermark words. The ring is a single-producer single-consumer queue without locks: the
+ * producer and the consumer only communicate through the indices of the ring. The consumer takes the bits
+ * of the words in order, starting with the least significant bit, so a PrefetchingRandom returns exactly
+ * the same bits as its source would have returned.
+ *
+ * When the consumer finds the ring empty, the stall count is incremented and one of the following happens:
+ * <ul>
+ * <li>If there is no fallback generator, the consumer waits until the producer has stored the next word.
+ * The output will be the same as the output of the source, so this is a pseudo random number generator if
+ * the source is one.</li>
+ * <li>If there is a fallback generator, the next word is taken from that generator instead. This never
+ * waits, but the output depends on the timing of the threads, so it is never a pseudo random number
+ * generator.</li>
+ * </ul>
+ *
+ * Just like the other instances of Random, a PrefetchingRandom should only be used by 1 thread at a time.
+ * The source must not be used by anything else. When the PrefetchingRandom is no longer needed, it should
+ * be closed to stop the producer thread.
+ * @author knokko
+ *
+ */
+public class PrefetchingRandom extends LongBasedRandom implements AutoCloseable {
+
+	/**
+	 * The number of times the consumer checks the ring again before it parks when the ring is empty
+	 */
+	private static final int SPIN_LIMIT = 100;
+
+	private static final ThreadFactory DEFAULT_THREAD_FACTORY = task -> {
+		Thread thread = new Thread(task, "PrefetchingRandom producer");
+		thread.setDaemon(true);
+		return thread;
+	};
+
+	private final Random source;
+	private final Random fallback;
+	private final ThreadFactory threadFactory;
+
+	private final long[] ring;
+	private final int mask;
+	private final int lowWatermark, highWatermark;
+
+	/**
+	 * The index of the next word that the consumer will take. Only the consumer modifies this.
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * The index of the next word that the producer will store. Only the producer modifies this.
+	 */
+	private final AtomicLong tail;
+
+	/**
+	 * The latest value of tail that the consumer has seen, so that it doesn't need to read tail for every word
+	 */
+	private long cachedTail;
+
+	/**
+	 * The producer holds this lock while it uses the source, so that clone() can use the source safely
+	 */
+	private final ReentrantLock sourceLock = new ReentrantLock();
+
+	private final Thread producer;
+	private volatile boolean producerWaiting;
+	private volatile Thread waitingConsumer;
+	private volatile boolean closed;
+	private volatile boolean producerStopped;
+	private volatile Throwable failure;
+
+	private long stallCount;
+	private long fallbackWords;
+
+	/**
+	 * Creates a PrefetchingRandom with a ring of 1024 words that is refilled when it contains 256 words or
+	 * less. The consumer will wait when the ring is empty. The producer will be a daemon thread.
+	 * @param source The slow generator, which must not be used by anything else
+	 */
+	public PrefetchingRandom(Random source) {
+		this(source, 1024, 256, 1024, null, DEFAULT_THREAD_FACTORY);
+	}
+
+	/**
+	 * @param source The slow generator, which must not be used by anything else
+	 * @param capacity The number of words the ring can hold, must be a power of 2
+	 * @param lowWatermark The producer continues filling the ring when it contains this many words or less
+	 * @param highWatermark The producer stops filling the ring when it contains this many words
+	 * @param fallback The generator to take words from when the ring is empty, or null to wait for the
+	 * producer instead. It will only be used by the consumer.
+	 * @param threadFactory The factory to create the producer thread with, for instance a factory for
+	 * daemon threads or virtual threads
+	 * @throws IllegalArgumentException If the capacity is not a power of 2 or the watermarks are not
+	 * 0 <= lowWatermark < highWatermark <= capacity
+	 */
+	public PrefetchingRandom(Random source, int capacity, int lowWatermark, int highWatermark, Random fallback,
+			ThreadFactory threadFactory) {
+		this(source, capacity, lowWatermark, highWatermark, fallback, threadFactory, new long[0]);
+	}
+
+	private PrefetchingRandom(Random source, int capacity, int lowWatermark, int highWatermark, Random fallback,
+			ThreadFactory threadFactory, long[] initialWords) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("The capacity must be a power of 2, but is " + capacity);
+		if (lowWatermark < 0 || lowWatermark >= highWatermark || highWatermark > capacity)
+			throw new IllegalArgumentException("Invalid watermarks " + lowWatermark + " and " + highWatermark + " for capacity " + capacity);
+		this.source = source;
+		this.fallback = fallback;
+		this.threadFactory = threadFactory;
+		this.ring = new long[capacity];
+		this.mask = ring.length - 1;
+		this.lowWatermark = lowWatermark;
+		this.highWatermark = highWatermark;
+		System.arraycopy(initialWords, 0, ring, 0, initialWords.length);
+		this.tail = new AtomicLong(initialWords.length);
+		this.cachedTail = initialWords.length;
+		this.producer = threadFactory.newThread(this::produce);
+		this.producer.start();
+	}
+
+	private void produce() {
+		try {
+			while (!closed && !Thread.currentThread().isInterrupted()) {
+				long currentTail = tail.get();
+				if (currentTail - head.get() >= highWatermark) {
+					producerWaiting = true;
+
+					// Check again after announcing that the producer will wait, so no wakeup can be missed
+					if (tail.get() - head.get() > lowWatermark && !closed) {
+						LockSupport.park(this);
+					}
+					producerWaiting = false;
+					continue;
+				}
+				sourceLock.lock();
+				try {
+					long end = head.get() + highWatermark;
+					for (; currentTail < end && !closed; currentTail++) {
+						ring[(int) currentTail & mask] = source.nextBits(64);
+						tail.set(currentTail + 1);
+						if (waitingConsumer != null) {
+							LockSupport.unpark(waitingConsumer);
+						}
+					}
+				} finally {
+					sourceLock.unlock();
+				}
+			}
+		} catch (Throwable throwable) {
+			failure = throwable;
+		} finally {
+			producerStopped = true;
+			Thread consumer = waitingConsumer;
+			if (consumer != null) {
+				LockSupport.unpark(consumer);
+			}
+		}
+	}
+
+	/**
+	 * Takes the next word from the ring, or from the fallback generator if the ring is empty and there is
+	 * a fallback generator
+	 */
+	@Override
+	protected long nextWord() {
+		long currentHead = head.get();
+		if (currentHead == cachedTail) {
+			cachedTail = tail.get();
+			if (currentHead == cachedTail) {
+				stallCount++;
+				if (fallback != null && !producerStopped) {
+					fallbackWords++;
+					return fallback.nextBits(64);
+				}
+				awaitWord(currentHead);
+			}
+		}
+		long word = ring[(int) currentHead & mask];
+		long remaining = cachedTail - currentHead - 1;
+		if (remaining > lowWatermark) {
+			head.lazySet(currentHead + 1);
+		} else {
+			// This must be a volatile write, so that either the producer sees the new head or the consumer
+			// sees that the producer is waiting
+			head.set(currentHead + 1);
+			if (producerWaiting) {
+				LockSupport.unpark(producer);
+			}
+		}
+		return word;
+	}
+
+	private void awaitWord(long currentHead) {
+		if (producerWaiting) {
+			LockSupport.unpark(producer);
+		}
+		for (int counter = 0; counter < SPIN_LIMIT; counter++) {
+			cachedTail = tail.get();
+			if (currentHead != cachedTail) {
+				return;
+			}
+			Thread.onSpinWait();
+		}
+		waitingConsumer = Thread.currentThread();
+		try {
+			while ((cachedTail = tail.get()) == currentHead) {
+				if (producerStopped) {
+					if (failure != null) {
+						throw new IllegalStateException("The source of this PrefetchingRandom failed", failure);
+					}
+					throw new IllegalStateException("This PrefetchingRandom has been closed");
+				}
+				LockSupport.park(this);
+			}
+		} finally {
+			waitingConsumer = null;
+		}
+	}
+
+	/**
+	 * @return the number of times the ring was empty when the consumer needed a word
+	 */
+	public long getStallCount() {
+		return stallCount;
+	}
+
+	/**
+	 * @return the number of words that were taken from the fallback generator
+	 */
+	public long getFallbackWords() {
+		return fallbackWords;
+	}
+
+	/**
+	 * @return the number of words that the producer has taken from the source
+	 */
+	public long getProducedWords() {
+		return tail.get();
+	}
+
+	/**
+	 * @return the number of words in the ring that the consumer hasn't taken yet
+	 */
+	public int getBufferedWords() {
+		return (int) (tail.get() - head.get());
+	}
+
+	/**
+	 * Stops the producer thread. The producer thread also stops when it is interrupted. The words that are still in the ring can still be used, but after that,
+	 * the methods of this random will throw an IllegalStateException. Closing more than once has no effect.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		LockSupport.unpark(producer);
+	}
+
+	/**
+	 * @return true if the source is a pseudo random number generator and there is no fallback generator
+	 */
+	@Override
+	public boolean isPseudo() {
+		return source.isPseudo() && fallback == null;
+	}
+
+	/**
+	 * Creates a PrefetchingRandom with a clone of the source, the same words in its ring and its own
+	 * producer thread. The producer of this random will be paused while the source is cloned.
+	 */
+	@Override
+	public PrefetchingRandom clone() {
+		sourceLock.lock();
+		try {
+			long currentHead = head.get();
+			long currentTail = tail.get();
+			long[] words = new long[(int) (currentTail - currentHead)];
+			for (int index = 0; index < words.length; index++) {
+				words[index] = ring[(int) (currentHead + index) & mask];
+			}
+			PrefetchingRandom clone = new PrefetchingRandom(source.clone(), ring.length, lowWatermark, highWatermark,
+					fallback == null ? null : fallback.clone(), threadFactory, words);
+			clone.copyBitState(this);
+			return clone;
+		} finally {
+			sourceLock.unlock();
+		}
+	}
+}
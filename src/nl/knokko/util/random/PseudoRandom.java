@@ -23,25 +23,19 @@
  *******************************************************************************/
 package nl.knokko.util.random;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
 
-import nl.knokko.util.bits.BitHelper;
 import nl.knokko.util.bits.BooleanArrayBitOutput;
-import static nl.knokko.util.bits.BitHelper.byteToBinary;
 
 public class PseudoRandom extends Random {
 
-	public static long XOR_TIME = 0;
-	public static long SHIFT_TIME1 = 0;
-	public static long REPLACE_TIME = 0;
-	public static long SHIFT_TIME2 = 0;
-	public static long INVERT_TIME = 0;
-
 	private static final int INDEX = 77;
 	private static final int SHIFTER = 214;
 
-	private static final boolean[] HARD_MASK = parse(
-			"1101000101001000010011100000101000000101100011101001010100000010001000100100111101011100001001111011010110011100001001010010011111100001010010010001101010000110101111011010100011001000100100111100010001100010110011001001000010100101001011110111110011011100");
+	private static final long[] HARD_MASK = pack(parse(
+			"1101000101001000010011100000101000000101100011101001010100000010001000100100111101011100001001111011010110011100001001010010011111100001010010010001101010000110101111011010100011001000100100111100010001100010110011001001000010100101001011110111110011011100"));
 
 	public static boolean[] parse(String string) {
 		if (string.length() != 256)
@@ -57,7 +51,24 @@ public class PseudoRandom extends Random {
 		return result;
 	}
 
-	private final boolean[] data;
+	/**
+	 * Packs the first 256 booleans of the given array into 4 longs. Boolean i will be stored in bit
+	 * (i % 64) of long (i / 64).
+	 */
+	private static long[] pack(boolean[] bools) {
+		long[] result = new long[4];
+		for (int index = 0; index < 256; index++) {
+			if (bools[index]) {
+				result[index >>> 6] |= 1L << index;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The 256 bits of the state, packed into 4 longs. Bit i of the state is bit (i % 64) of data[i / 64].
+	 */
+	private final long[] data;
 
 	private Configuration config;
 
@@ -71,7 +82,7 @@ public class PseudoRandom extends Random {
 
 	public PseudoRandom(Configuration config) {
 		this.config = config;
-		data = new boolean[256];
+		data = new long[4];
 		long millis = System.currentTimeMillis();
 		long nanos = System.nanoTime();
 		seed(millis * millis, nanos * nanos, millis * nanos, millis + nanos);
@@ -93,13 +104,19 @@ public class PseudoRandom extends Random {
 				helper.setWriteIndex(0);
 			}
 		}
-		data = helper.getBackingArray();
+		data = pack(helper.getBackingArray());
 	}
 
+	/**
+	 * Creates a PseudoRandom with the given state. The state is copied, so later modifications to the given
+	 * array won't affect this PseudoRandom.
+	 * @param data The state, the length must be 256
+	 * @param config The configuration to use
+	 */
 	public PseudoRandom(boolean[] data, Configuration config) {
 		this.config = config;
 		if (data.length == 256)
-			this.data = data;
+			this.data = pack(data);
 		else
 			throw new IllegalArgumentException("Length must be 256, not " + data.length);
 	}
@@ -110,7 +127,7 @@ public class PseudoRandom extends Random {
 
 	public PseudoRandom(long seed1, long seed2, long seed3, long seed4, Configuration config) {
 		this.config = config;
-		data = new boolean[256];
+		data = new long[4];
 		seed(seed1, seed2, seed3, seed4);
 	}
 
@@ -121,10 +138,21 @@ public class PseudoRandom extends Random {
 	public PseudoRandom(int seed1, int seed2, int seed3, int seed4, int seed5, int seed6, int seed7, int seed8,
 			Configuration config) {
 		this.config = config;
-		data = new boolean[256];
+		data = new long[4];
 		seed(seed1, seed2, seed3, seed4, seed5, seed6, seed7, seed8);
 	}
 
+	private PseudoRandom(PseudoRandom original) {
+		this.config = original.config;
+		this.data = Arrays.copyOf(original.data, 4);
+		this.xorCounter = original.xorCounter;
+		this.shiftCounter1 = original.shiftCounter1;
+		this.replaceCounter = original.replaceCounter;
+		this.shiftCounter2 = original.shiftCounter2;
+		this.invertCounter = original.invertCounter;
+		this.shiftAmount = original.shiftAmount;
+	}
+
 	public void setConfig(Configuration config) {
 		this.config = config;
 	}
@@ -135,13 +163,51 @@ public class PseudoRandom extends Random {
 		chars[0] = 'P';
 		chars[1] = 'R';
 		chars[2] = '[';
-		for (int index = 0; index < data.length; index++) {
-			chars[3 + index] = data[index] ? '1' : '0';
+		for (int index = 0; index < 256; index++) {
+			chars[3 + index] = getBit(index) ? '1' : '0';
 		}
 		chars[259] = ']';
 		return new String(chars);
 	}
 
+	/**
+	 * Gives this PseudoRandom the same state as new PseudoRandom(seed1, config) would have (with the
+	 * current config of this PseudoRandom). This can be used to reuse a PseudoRandom instead of
+	 * creating a new one.
+	 */
+	public void reseed(long seed1) {
+		reseed(seed1, seed1 / 3487834, seed1 * 9678538, seed1 - 14396);
+	}
+
+	/**
+	 * Gives this PseudoRandom the same state as new PseudoRandom(seed1, seed2, seed3, seed4, config) would
+	 * have (with the current config of this PseudoRandom). This can be used to reuse a PseudoRandom instead
+	 * of creating a new one.
+	 */
+	public void reseed(long seed1, long seed2, long seed3, long seed4) {
+		resetCounters();
+		seed(seed1, seed2, seed3, seed4);
+	}
+
+	/**
+	 * Gives this PseudoRandom the same state as new PseudoRandom(seed1, ..., seed8, config) would have
+	 * (with the current config of this PseudoRandom). This can be used to reuse a PseudoRandom instead
+	 * of creating a new one.
+	 */
+	public void reseed(int seed1, int seed2, int seed3, int seed4, int seed5, int seed6, int seed7, int seed8) {
+		resetCounters();
+		seed(seed1, seed2, seed3, seed4, seed5, seed6, seed7, seed8);
+	}
+
+	private void resetCounters() {
+		xorCounter = 0;
+		shiftCounter1 = 0;
+		replaceCounter = 0;
+		shiftCounter2 = 0;
+		invertCounter = 0;
+		shiftAmount = 0;
+	}
+
 	private void seed(long seed1, long seed2, long seed3, long seed4) {
 		fill(0, seed1);
 		fill(64, seed2);
@@ -161,90 +227,126 @@ public class PseudoRandom extends Random {
 	}
 
 	private void fill(int index, long value) {
-		byteToBinary(BitHelper.long0(value), data, index);
-		byteToBinary(BitHelper.long1(value), data, index + 8);
-		byteToBinary(BitHelper.long2(value), data, index + 16);
-		byteToBinary(BitHelper.long3(value), data, index + 24);
-		byteToBinary(BitHelper.long4(value), data, index + 32);
-		byteToBinary(BitHelper.long5(value), data, index + 40);
-		byteToBinary(BitHelper.long6(value), data, index + 48);
-		byteToBinary(BitHelper.long7(value), data, index + 56);
+		setPattern(index, BitPatterns.longToPattern(value), 64);
 	}
 
 	public boolean next() {
+		if (Timings.enabled) {
+			return timedNext();
+		}
 		int oldIndex = getIndex();
-		boolean result = data[oldIndex];
-		long startTime = System.nanoTime();
+		boolean result = getBit(oldIndex);
 		xor(oldIndex);// only 256 possibilities to try
-		XOR_TIME += System.nanoTime() - startTime;
-		startTime = System.nanoTime();
 		shift1();// only 256 possibilities to try
-		SHIFT_TIME1 += System.nanoTime() - startTime;
-		startTime = System.nanoTime();
 		replace(result);// good luck with reversing this one...
-		REPLACE_TIME += System.nanoTime() - startTime;
-		startTime = System.nanoTime();
 		shift2();// can be reversed by trying all 256 possible previous
 					// indices
-		SHIFT_TIME2 += System.nanoTime() - startTime;
-		startTime = System.nanoTime();
 		invert();// the index may or may not have overwritten itself
-		INVERT_TIME += System.nanoTime() - startTime;
 		setIndex(getAt(getIndex() - 96));// can be reversed by trying all 256 possible previous indices
 		return result;
 	}
 
+	/**
+	 * Does the same as next(), but also measures the time spent in each step and adds it to the Timings.
+	 */
+	private boolean timedNext() {
+		int oldIndex = getIndex();
+		boolean result = getBit(oldIndex);
+		long startTime = System.nanoTime();
+		xor(oldIndex);
+		long xorEndTime = System.nanoTime();
+		shift1();
+		long shift1EndTime = System.nanoTime();
+		replace(result);
+		long replaceEndTime = System.nanoTime();
+		shift2();
+		long shift2EndTime = System.nanoTime();
+		invert();
+		long invertEndTime = System.nanoTime();
+		setIndex(getAt(getIndex() - 96));
+		Timings.XOR_TIME.add(xorEndTime - startTime);
+		Timings.SHIFT_TIME1.add(shift1EndTime - xorEndTime);
+		Timings.REPLACE_TIME.add(replaceEndTime - shift1EndTime);
+		Timings.SHIFT_TIME2.add(shift2EndTime - replaceEndTime);
+		Timings.INVERT_TIME.add(invertEndTime - shift2EndTime);
+		Timings.STEPS.increment();
+		return result;
+	}
+
+	private boolean getBit(int index) {
+		return (data[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Reads the bits of the state in the range [index, index + length> and packs them into a long. If the
+	 * range exceeds the end of the state, it will continue at the start of the state.
+	 * @param index The index of the first bit, will be taken modulo 256
+	 * @param length The amount of bits to read, at most 64
+	 * @return the read bits, the first bit is the least significant bit
+	 */
+	private long getPattern(int index, int length) {
+		index &= 255;
+		int word = index >>> 6;
+		int offset = index & 63;
+		long result = data[word] >>> offset;
+		if (offset + length > 64) {
+			result |= data[(word + 1) & 3] << (64 - offset);
+		}
+		return result & (-1L >>> (64 - length));
+	}
+
+	/**
+	 * Overwrites the bits of the state in the range [index, index + length> with the bits of the pattern.
+	 * If the range exceeds the end of the state, it will continue at the start of the state.
+	 * @param index The index of the first bit, will be taken modulo 256
+	 * @param pattern The new bits, the first bit is the least significant bit
+	 * @param length The amount of bits to write, at most 64
+	 */
+	private void setPattern(int index, long pattern, int length) {
+		index &= 255;
+		int word = index >>> 6;
+		int offset = index & 63;
+		long mask = -1L >>> (64 - length);
+		pattern &= mask;
+		data[word] = data[word] & ~(mask << offset) | pattern << offset;
+		if (offset + length > 64) {
+			int nextWord = (word + 1) & 3;
+			int shift = 64 - offset;
+			data[nextWord] = data[nextWord] & ~(mask >>> shift) | pattern >>> shift;
+		}
+	}
+
 	protected void setAt(int index, boolean[] number) {
-		// System.out.println("PseudoRandom.setAt(" + index + "," +
-		// Arrays.toString(number) + ")");
-		while (index < 0)
-			index += 256;
-		while (index >= 256)
-			index -= 256;
-		int copyAmount = 256 - index;
-		if (copyAmount >= number.length) {
-			// we won't reach the end of our data
-			System.arraycopy(number, 0, data, index, number.length);
-			// System.out.println(index + "Set data to " + Arrays.toString(data));
-		} else {
-			// we will reach the end of our data, so we resume at the begin of our data
-			System.arraycopy(number, 0, data, index, copyAmount);
-			System.arraycopy(number, copyAmount, data, 0, number.length - copyAmount);
+		for (int bitIndex = 0; bitIndex < number.length; bitIndex += 64) {
+			int length = Math.min(64, number.length - bitIndex);
+			long pattern = 0;
+			for (int patternIndex = 0; patternIndex < length; patternIndex++) {
+				if (number[bitIndex + patternIndex]) {
+					pattern |= 1L << patternIndex;
+				}
+			}
+			setPattern(index + bitIndex, pattern, length);
 		}
 	}
 
 	protected void setIntAt(int index, int value) {
-		setAt(index, BitHelper.byteToBinary(BitHelper.int0(value)));
-		setAt(index + 8, BitHelper.byteToBinary(BitHelper.int1(value)));
-		setAt(index + 16, BitHelper.byteToBinary(BitHelper.int2(value)));
-		setAt(index + 24, BitHelper.byteToBinary(BitHelper.int3(value)));
+		setPattern(index, BitPatterns.intToPattern(value), 32);
 	}
 
 	protected void setAt(int index, int value) {
-		boolean[] binary = BitHelper.byteToBinary((byte) (value - 128));
-		setAt(index, binary);
+		setPattern(index, BitPatterns.toPattern((byte) (value - 128)), 8);
 	}
 
 	protected boolean[] getAt(int index, int length) {
-		while (index < 0)
-			index += 256;
-		while (index >= 256)
-			index -= 256;
 		boolean[] result = new boolean[length];
-		int copyAmount = 256 - index;
-		if (copyAmount >= length) {
-			// we won't reach the end of the array
-			System.arraycopy(data, index, result, 0, length);
-		} else {
-			// we will reach the end of the array, so we resume at begin of the array
-			System.arraycopy(data, index, result, 0, copyAmount);
-			System.arraycopy(data, 0, result, copyAmount, length - copyAmount);
+		for (int resultIndex = 0; resultIndex < length; resultIndex++) {
+			result[resultIndex] = getBit((index + resultIndex) & 255);
 		}
 		return result;
 	}
 
 	protected int getAt(int index) {
-		return BitHelper.byteFromBinary(getAt(index, 8)) + 128;
+		return BitPatterns.toByte(getPattern(index, 8)) + 128;
 	}
 
 	private int getIndex() {
@@ -261,24 +363,39 @@ public class PseudoRandom extends Random {
 			xorCounter = config.xorPeriod;
 		} else {
 			xorCounter--;
-			if (data[10]) {
+			if (getBit(10)) {
 				xorCounter--;
 			}
 		}
 	}
 
-	private void xor(int index, boolean[] mask) {
-		int maskIndex = 0;
-		for (; maskIndex + index < 256; maskIndex++) {
-			if (mask[maskIndex]) {
-				data[index + maskIndex] = !data[index + maskIndex];
-			}
-		}
-		for (; maskIndex < 256; maskIndex++) {
-			if (mask[maskIndex]) {
-				data[index + maskIndex - 256] = !data[index + maskIndex - 256];
-			}
+	/**
+	 * Xors the state with the mask rotated by index bits, so bit (index + i) % 256 of the state is
+	 * flipped if bit i of the mask is set.
+	 */
+	private void xor(int index, long[] mask) {
+		int wordShift = index >>> 6;
+		int bitShift = index & 63;
+		long mask0 = rotatedWord(mask, 0, wordShift, bitShift);
+		long mask1 = rotatedWord(mask, 1, wordShift, bitShift);
+		long mask2 = rotatedWord(mask, 2, wordShift, bitShift);
+		long mask3 = rotatedWord(mask, 3, wordShift, bitShift);
+		data[0] ^= mask0;
+		data[1] ^= mask1;
+		data[2] ^= mask2;
+		data[3] ^= mask3;
+	}
+
+	/**
+	 * Computes word 'word' of the given 256-bit value after rotating it wordShift * 64 + bitShift bits
+	 * towards the higher indices.
+	 */
+	private static long rotatedWord(long[] source, int word, int wordShift, int bitShift) {
+		long result = source[(word - wordShift) & 3] << bitShift;
+		if (bitShift != 0) {
+			result |= source[(word - wordShift - 1) & 3] >>> (64 - bitShift);
 		}
+		return result;
 	}
 
 	private void shift1() {
@@ -287,7 +404,7 @@ public class PseudoRandom extends Random {
 			shiftCounter1 = config.shiftPeriod1;
 		} else {
 			shiftCounter1--;
-			if (data[7]) {
+			if (getBit(7)) {
 				shiftCounter1--;
 			}
 		}
@@ -299,15 +416,27 @@ public class PseudoRandom extends Random {
 			shiftCounter2 = config.shiftPeriod2;
 		} else {
 			shiftCounter2--;
-			if (data[12]) {
+			if (getBit(12)) {
 				shiftCounter2--;
 			}
 		}
 	}
 
+	/**
+	 * Rotates the state direction bits towards the higher indices.
+	 */
 	private void shift(int direction) {
-		boolean[] backup = Arrays.copyOf(data, 256);
-		setAt(direction, backup);
+		direction &= 255;
+		int wordShift = direction >>> 6;
+		int bitShift = direction & 63;
+		long word0 = rotatedWord(data, 0, wordShift, bitShift);
+		long word1 = rotatedWord(data, 1, wordShift, bitShift);
+		long word2 = rotatedWord(data, 2, wordShift, bitShift);
+		long word3 = rotatedWord(data, 3, wordShift, bitShift);
+		data[0] = word0;
+		data[1] = word1;
+		data[2] = word2;
+		data[3] = word3;
 	}
 
 	private void replace(boolean result) {
@@ -323,23 +452,14 @@ public class PseudoRandom extends Random {
 	}
 
 	private void replace(int baseIndex, boolean value) {
-		int[] firstIndices = new int[32];
-		for (int i = 0; i < 32; i++)
-			firstIndices[i] = getAt(baseIndex + i * 8);
-		int[] secondIndices = new int[256];
-		for (int i = 0; i < 32; i++) {
-			secondIndices[i * 8 + 0] = getAt(firstIndices[i] + 0);
-			secondIndices[i * 8 + 1] = getAt(firstIndices[i] + 23);
-			secondIndices[i * 8 + 2] = getAt(firstIndices[i] + 143);
-			secondIndices[i * 8 + 3] = getAt(firstIndices[i] + 12);
-			secondIndices[i * 8 + 4] = getAt(firstIndices[i] - 74);
-			secondIndices[i * 8 + 5] = getAt(firstIndices[i] - 213);
-			secondIndices[i * 8 + 6] = getAt(firstIndices[i] + 176);
-			secondIndices[i * 8 + 7] = getAt(firstIndices[i] + 58);
-		}
-		boolean[] copy = Arrays.copyOf(data, 256);
-		for (int index = 0; index < 256; index++)
-			data[index] = copy[secondIndices[index]];
+		long word0 = replacedWord(baseIndex, 0);
+		long word1 = replacedWord(baseIndex, 1);
+		long word2 = replacedWord(baseIndex, 2);
+		long word3 = replacedWord(baseIndex, 3);
+		data[0] = word0;
+		data[1] = word1;
+		data[2] = word2;
+		data[3] = word3;
 
 		/*
 		 * Crack 0101010101010101...
@@ -356,27 +476,87 @@ public class PseudoRandom extends Random {
 		 */
 	}
 
+	/**
+	 * Computes word 'word' of the state after the replace step, without modifying the state. Every
+	 * firstIndex determines 8 consecutive bits of the new state, and each of those bits is copied from the
+	 * bit at a secondIndex of the current state.
+	 */
+	private long replacedWord(int baseIndex, int word) {
+		long result = 0;
+		for (int i = word * 8; i < word * 8 + 8; i++) {
+			int firstIndex = getAt(baseIndex + i * 8);
+			long secondBits = bitValue(getAt(firstIndex + 0));
+			secondBits |= bitValue(getAt(firstIndex + 23)) << 1;
+			secondBits |= bitValue(getAt(firstIndex + 143)) << 2;
+			secondBits |= bitValue(getAt(firstIndex + 12)) << 3;
+			secondBits |= bitValue(getAt(firstIndex - 74)) << 4;
+			secondBits |= bitValue(getAt(firstIndex - 213)) << 5;
+			secondBits |= bitValue(getAt(firstIndex + 176)) << 6;
+			secondBits |= bitValue(getAt(firstIndex + 58)) << 7;
+			result |= secondBits << ((i & 7) * 8);
+		}
+		return result;
+	}
+
+	private long bitValue(int index) {
+		return (data[index >>> 6] >>> index) & 1;
+	}
+
 	private void invert() {
 		if (invertCounter <= 0) {
 			invert(getAt(getIndex() + 17));
 			invertCounter = config.invertPeriod;
 		} else {
 			invertCounter--;
-			if (data[3]) {
+			if (getBit(3)) {
 				invertCounter--;
 			}
 		}
 	}
 
 	private void invert(int index) {
-		boolean[] bools = getAt(index, 15);
-		for (int i = 0; i < bools.length; i++)
-			bools[i] = !bools[i];
-		setAt(index, bools);
+		setPattern(index, ~getPattern(index, 15), 15);
+	}
+
+	@Override
+	void writeState(ByteBuffer buffer) {
+		config.writeState(buffer);
+		for (long word : data) {
+			buffer.putLong(word);
+		}
+		buffer.putInt(xorCounter);
+		buffer.putInt(shiftCounter1);
+		buffer.putInt(replaceCounter);
+		buffer.putInt(shiftCounter2);
+		buffer.putInt(invertCounter);
+		buffer.put(shiftAmount);
+	}
+
+	@Override
+	int getStateSize() {
+		return Configuration.STATE_SIZE + 4 * 8 + 5 * 4 + 1;
+	}
+
+	static PseudoRandom readState(ByteBuffer buffer) {
+		PseudoRandom result = new PseudoRandom(0L, 0L, 0L, 0L, Configuration.readState(buffer));
+		for (int word = 0; word < 4; word++) {
+			result.data[word] = buffer.getLong();
+		}
+		result.xorCounter = buffer.getInt();
+		result.shiftCounter1 = buffer.getInt();
+		result.replaceCounter = buffer.getInt();
+		result.shiftCounter2 = buffer.getInt();
+		result.invertCounter = buffer.getInt();
+		result.shiftAmount = buffer.get();
+		return result;
 	}
 
 	public boolean[] getData() {
-		return Arrays.copyOf(data, 256);
+		boolean[] result = new boolean[256];
+		for (int index = 0; index < 256; index++) {
+			result[index] = getBit(index);
+		}
+		return result;
 	}
 
 	public int getReplaceCounter() {
@@ -390,14 +570,141 @@ public class PseudoRandom extends Random {
 
 	@Override
 	public Random clone() {
-		PseudoRandom clone = new PseudoRandom(Arrays.copyOf(data, data.length), config);
-		clone.xorCounter = xorCounter;
-		clone.shiftCounter1 = shiftCounter1;
-		clone.replaceCounter = replaceCounter;
-		clone.shiftCounter2 = shiftCounter2;
-		clone.invertCounter = invertCounter;
-		clone.shiftAmount = shiftAmount;
-		return clone;
+		return new PseudoRandom(this);
+	}
+
+	/**
+	 * Creates a PseudoRandom with the same configuration as this one, seeded by the next long of this
+	 * PseudoRandom.
+	 */
+	@Override
+	public PseudoRandom split() {
+		long seed = nextLong();
+		return new PseudoRandom(mixSeed(seed), mixSeed(seed + SEED_GAMMA), mixSeed(seed + 2 * SEED_GAMMA),
+				mixSeed(seed + 3 * SEED_GAMMA), config);
+	}
+
+	/**
+	 * Measures how much time the PseudoRandom instances spend in each step of next(). Measuring is
+	 * disabled by default, in which case next() won't call System.nanoTime() at all. When enabled, every
+	 * call to next() will measure its steps and add the durations to shared accumulators that can be
+	 * updated by many threads without contention. The accumulated durations can be read with snapshot().
+	 */
+	public static final class Timings {
+
+		private static volatile boolean enabled;
+
+		private static final LongAdder XOR_TIME = new LongAdder();
+		private static final LongAdder SHIFT_TIME1 = new LongAdder();
+		private static final LongAdder REPLACE_TIME = new LongAdder();
+		private static final LongAdder SHIFT_TIME2 = new LongAdder();
+		private static final LongAdder INVERT_TIME = new LongAdder();
+		private static final LongAdder STEPS = new LongAdder();
+
+		/**
+		 * Starts measuring the steps of all PseudoRandom instances.
+		 */
+		public static void enable() {
+			enabled = true;
+		}
+
+		/**
+		 * Stops measuring the steps. The durations that were measured so far will be kept until reset()
+		 * is called.
+		 */
+		public static void disable() {
+			enabled = false;
+		}
+
+		public static boolean isEnabled() {
+			return enabled;
+		}
+
+		/**
+		 * Sets all accumulated durations and the step count back to 0.
+		 */
+		public static void reset() {
+			XOR_TIME.reset();
+			SHIFT_TIME1.reset();
+			REPLACE_TIME.reset();
+			SHIFT_TIME2.reset();
+			INVERT_TIME.reset();
+			STEPS.reset();
+		}
+
+		/**
+		 * @return the durations that have been accumulated since the last reset. If other threads are
+		 * still measuring, the values may not belong to exactly the same set of steps.
+		 */
+		public static Timings snapshot() {
+			return new Timings(XOR_TIME.sum(), SHIFT_TIME1.sum(), REPLACE_TIME.sum(), SHIFT_TIME2.sum(),
+					INVERT_TIME.sum(), STEPS.sum());
+		}
+
+		private final long xorTime;
+		private final long shiftTime1;
+		private final long replaceTime;
+		private final long shiftTime2;
+		private final long invertTime;
+		private final long steps;
+
+		private Timings(long xorTime, long shiftTime1, long replaceTime, long shiftTime2, long invertTime,
+				long steps) {
+			this.xorTime = xorTime;
+			this.shiftTime1 = shiftTime1;
+			this.replaceTime = replaceTime;
+			this.shiftTime2 = shiftTime2;
+			this.invertTime = invertTime;
+			this.steps = steps;
+		}
+
+		/**
+		 * @return the total time spent in the xor step, in nanoseconds
+		 */
+		public long getXorTime() {
+			return xorTime;
+		}
+
+		/**
+		 * @return the total time spent in the first shift step, in nanoseconds
+		 */
+		public long getShiftTime1() {
+			return shiftTime1;
+		}
+
+		/**
+		 * @return the total time spent in the replace step, in nanoseconds
+		 */
+		public long getReplaceTime() {
+			return replaceTime;
+		}
+
+		/**
+		 * @return the total time spent in the second shift step, in nanoseconds
+		 */
+		public long getShiftTime2() {
+			return shiftTime2;
+		}
+
+		/**
+		 * @return the total time spent in the invert step, in nanoseconds
+		 */
+		public long getInvertTime() {
+			return invertTime;
+		}
+
+		/**
+		 * @return the number of next() calls that were measured
+		 */
+		public long getSteps() {
+			return steps;
+		}
+
+		@Override
+		public String toString() {
+			return "Timings(steps: " + steps + ", xor: " + xorTime + "ns, shift1: " + shiftTime1 + "ns, replace: "
+					+ replaceTime + "ns, shift2: " + shiftTime2 + "ns, invert: " + invertTime + "ns)";
+		}
 	}
 
 	public static class Configuration {
@@ -427,5 +734,36 @@ public class PseudoRandom extends Random {
 			this.shiftPeriod2 = shiftPeriod2;
 			this.invertPeriod = invertPeriod;
 		}
+
+		private static final int STATE_SIZE = 5 * 4;
+
+		private void writeState(ByteBuffer buffer) {
+			buffer.putInt(xorPeriod);
+			buffer.putInt(shiftPeriod1);
+			buffer.putInt(replacePeriod);
+			buffer.putInt(shiftPeriod2);
+			buffer.putInt(invertPeriod);
+		}
+
+		/**
+		 * Reads a configuration that was written by writeState. If it has the same periods as one of the
+		 * predefined configurations, that configuration will be returned.
+		 */
+		private static Configuration readState(ByteBuffer buffer) {
+			Configuration read = new Configuration(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(),
+					buffer.getInt());
+			for (Configuration predefined : new Configuration[] { LEGACY, MEDIUM, LIGHT }) {
+				if (read.hasSamePeriods(predefined)) {
+					return predefined;
+				}
+			}
+			return read;
+		}
+
+		private boolean hasSamePeriods(Configuration other) {
+			return xorPeriod == other.xorPeriod && shiftPeriod1 == other.shiftPeriod1
+					&& replacePeriod == other.replacePeriod && shiftPeriod2 == other.shiftPeriod2
+					&& invertPeriod == other.invertPeriod;
+		}
 	}
 }
\ No newline at end of file
@@ -23,20 +23,13 @@
  *******************************************************************************/
 package nl.knokko.util.random;
 
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
 import nl.knokko.util.bits.BitHelper;
 
 public abstract class Random {
 	
-	private static final int[] INT_2_POWERS = new int[30];
-	
-	static {
-		int factor = 1;
-		for (int index = 0; index < INT_2_POWERS.length; index++) {
-			INT_2_POWERS[index] = factor;
-			factor *= 2;
-		}
-	}
-
 	public static byte getRequiredBits(long number) {
 		byte b = 0;
 		while (BitHelper.get2Power(b) <= number)
@@ -46,7 +39,7 @@ public abstract class Random {
 
 	/**
 	 * All implementations of Random must override this method. All other methods of
-	 * Random will use next() calls to generate its value. This method will be
+	 * Random will use next() calls (through nextBits) to generate its value. This method will be
 	 * called for every bit that is necessary for the result. The chance to generate
 	 * false should be equal to the chance to generate true
 	 * 
@@ -54,6 +47,29 @@ public abstract class Random {
 	 */
 	public abstract boolean next();
 	
+	/**
+	 * Generates the given amount of random bits and packs them into a long. The first generated bit is
+	 * stored in the least significant bit of the result, the second bit in the bit after that and so on.
+	 * All bits of the result above the requested amount will be 0.
+	 * 
+	 * The default implementation simply calls next() for every bit. All typed methods of Random (nextByte,
+	 * nextInt, nextLong...) obtain their bits through this method, so generators that naturally produce
+	 * whole words can override it to skip the per-bit calls. Overriding implementations must return the
+	 * same bits as amount consecutive next() calls would have returned.
+	 * 
+	 * @param amount the number of bits to generate, must be between 0 and 64 (inclusive)
+	 * @return the generated bits, packed into a long
+	 */
+	public long nextBits(int amount) {
+		long result = 0;
+		for (int index = 0; index < amount; index++) {
+			if (next()) {
+				result |= 1L << index;
+			}
+		}
+		return result;
+	}
+	
 	/**
 	 * Checks whether or not this random instance is completely pseudo-random. In other words, can all the
 	 * results of this random instance be reproduced.
@@ -71,6 +87,66 @@ public abstract class Random {
 	 */
 	public abstract Random clone();
 
+	/**
+	 * Creates a new random instance whose output is independent of the output of this random instance. Unlike
+	 * clone(), the child will not repeat the values of this random instance, so it can be handed to another
+	 * thread or task while this random instance continues to be used.
+	 * The child is derived from the next output of this random instance. If this is a pseudo random number
+	 * generator, the child will be a pseudo random number generator as well and splitting in the same order
+	 * will always give the same children, no matter on which threads the children are used afterwards.
+	 * 
+	 * @return a new random instance with independent output
+	 * @throws UnsupportedOperationException if this random instance can't be split
+	 */
+	public Random split() {
+		throw new UnsupportedOperationException(getClass().getName() + " can't be split");
+	}
+
+	/**
+	 * Creates a java.util.random.RandomGenerator that takes its values from this random instance. The streams
+	 * of the returned generator use split() to divide the work for parallel streams.
+	 * 
+	 * @return a RandomGenerator that is backed by this random instance
+	 */
+	public RandomGeneratorAdapter asRandomGenerator() {
+		return new RandomGeneratorAdapter(this);
+	}
+
+	/**
+	 * Scrambles a seed that was taken from the output of a parent generator (using the finalizer of
+	 * SplitMix64), so that children with similar seeds still get completely different states.
+	 */
+	static long mixSeed(long seed) {
+		seed = (seed ^ (seed >>> 30)) * 0xBF58476D1CE4E5B9L;
+		seed = (seed ^ (seed >>> 27)) * 0x94D049BB133111EBL;
+		return seed ^ (seed >>> 31);
+	}
+
+	/**
+	 * The increment that is used to derive multiple seeds from a single value, before they are mixed.
+	 */
+	static final long SEED_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Writes the complete state of this Random to the buffer. This is used by RandomSnapshot, which also
+	 * takes care of reading the state back. The implementations of this package override this method if
+	 * they support snapshots.
+	 * 
+	 * @param buffer the buffer to write the state to
+	 * @throws UnsupportedOperationException if this Random doesn't support snapshots
+	 */
+	void writeState(ByteBuffer buffer) {
+		throw new UnsupportedOperationException(getClass().getName() + " doesn't support snapshots");
+	}
+
+	/**
+	 * @return the number of bytes that writeState will write
+	 * @throws UnsupportedOperationException if this Random doesn't support snapshots
+	 */
+	int getStateSize() {
+		throw new UnsupportedOperationException(getClass().getName() + " doesn't support snapshots");
+	}
+
 	/**
 	 * This method does the same as next(), but its name is more clear.
 	 * 
@@ -87,7 +163,7 @@ public abstract class Random {
 	 * @return the next random byte
 	 */
 	public byte nextByte() {
-		return BitHelper.byteFromBinary(next(), next(), next(), next(), next(), next(), next(), next());
+		return BitPatterns.toByte(nextBits(8));
 	}
 
 	/**
@@ -97,7 +173,7 @@ public abstract class Random {
 	 * @return the next random short
 	 */
 	public short nextShort() {
-		return BitHelper.makeShort(nextByte(), nextByte());
+		return BitPatterns.toShort(nextBits(16));
 	}
 
 	/**
@@ -107,7 +183,7 @@ public abstract class Random {
 	 * @return the next random character
 	 */
 	public char nextChar() {
-		return BitHelper.makeChar(nextByte(), nextByte());
+		return BitPatterns.toChar(nextBits(16));
 	}
 
 	/**
@@ -117,7 +193,7 @@ public abstract class Random {
 	 * @return the next random integer
 	 */
 	public int nextInt() {
-		return BitHelper.makeInt(nextByte(), nextByte(), nextByte(), nextByte());
+		return BitPatterns.toInt(nextBits(32));
 	}
 
 	/**
@@ -127,8 +203,7 @@ public abstract class Random {
 	 * @return the next random long
 	 */
 	public long nextLong() {
-		return BitHelper.makeLong(nextByte(), nextByte(), nextByte(), nextByte(), nextByte(), nextByte(), nextByte(),
-				nextByte());
+		return BitPatterns.toLong(nextBits(64));
 	}
 
 	/**
@@ -145,16 +220,51 @@ public abstract class Random {
 
 	/**
 	 * This method generates a random float in the range 0 (inclusive) to 1
-	 * (exclusive). All possible float values in this range can be returned with
-	 * equal chance.
+	 * (exclusive). The result is a random multiple of 2^-24, so every result has
+	 * the same chance and the results are uniformly distributed over the range.
+	 * This only needs 24 random bits.
 	 * 
 	 * @return a random float between 0 (inclusive) and 1 (exclusive)
 	 */
 	public float nextFloat() {
-		byte b0 = nextByte();
-		byte b1 = nextByte();
-		byte b2 = BitHelper.byteFromBinary(next(), next(), next(), next(), next(), next(), next(), true);
-		byte b3 = BitHelper.byteFromBinary(false, next(), next(), next(), next(), next(), next(), true);
+		return nextBits(24) * 0x1.0p-24f;
+	}
+
+	/**
+	 * This method generates a random float in the range origin (inclusive) to bound
+	 * (exclusive), using nextFloat().
+	 * 
+	 * @param origin the minimum result
+	 * @param bound the bound of the result
+	 * @return a random float between origin (inclusive) and bound (exclusive)
+	 * @throws IllegalArgumentException if origin is not smaller than bound or the range is not finite
+	 */
+	public float nextFloat(float origin, float bound) {
+		if (!(origin < bound && bound - origin < Float.POSITIVE_INFINITY))
+			throw new IllegalArgumentException("Can't generate floats between " + origin + " and " + bound);
+		float result = origin + nextFloat() * (bound - origin);
+		
+		// Rounding can cause the result to be equal to the bound
+		return result < bound ? result : Math.nextDown(bound);
+	}
+
+	/**
+	 * This method generates a random float in the range 0 (inclusive) to 1
+	 * (exclusive). All possible float values in this range can be returned with
+	 * equal chance. Because there are many more float values close to 0, the
+	 * results are <b>not</b> uniformly distributed over the range: most results
+	 * will be very small. This method was called nextFloat() in older versions.
+	 * 
+	 * @return a random float between 0 (inclusive) and 1 (exclusive)
+	 */
+	public float nextDenseFloat() {
+		long bits = nextBits(29);
+		
+		// The 8th bit of b2 and b3 is always true and the first bit of b3 is always false
+		byte b0 = BitPatterns.toByte(bits);
+		byte b1 = BitPatterns.toByte(bits >>> 8);
+		byte b2 = BitPatterns.toByte((bits >>> 16) & 0x7F | 0x80);
+		byte b3 = BitPatterns.toByte((bits >>> 23) << 1 | 0x80);
 		return Float.intBitsToFloat(BitHelper.makeInt(b0, b1, b2, b3));
 	}
 
@@ -172,21 +282,54 @@ public abstract class Random {
 
 	/**
 	 * This method generates a random double in the range 0 (inclusive) to 1
-	 * (exclusive). The result can be any double value in this range with equal
-	 * chance.
+	 * (exclusive). The result is a random multiple of 2^-53, so every result has
+	 * the same chance and the results are uniformly distributed over the range.
+	 * This only needs 53 random bits.
 	 * 
 	 * @return a random double between 0 (inclusive) and 1 (exclusive)
 	 */
 	public double nextDouble() {
-		byte b0 = nextByte();
-		byte b1 = nextByte();
-		byte b2 = nextByte();
-		byte b3 = nextByte();
-		byte b4 = nextByte();
-		byte b5 = nextByte();
+		return nextBits(53) * 0x1.0p-53;
+	}
+
+	/**
+	 * This method generates a random double in the range origin (inclusive) to bound
+	 * (exclusive), using nextDouble().
+	 * 
+	 * @param origin the minimum result
+	 * @param bound the bound of the result
+	 * @return a random double between origin (inclusive) and bound (exclusive)
+	 * @throws IllegalArgumentException if origin is not smaller than bound or the range is not finite
+	 */
+	public double nextDouble(double origin, double bound) {
+		if (!(origin < bound && bound - origin < Double.POSITIVE_INFINITY))
+			throw new IllegalArgumentException("Can't generate doubles between " + origin + " and " + bound);
+		double result = origin + nextDouble() * (bound - origin);
+		
+		// Rounding can cause the result to be equal to the bound
+		return result < bound ? result : Math.nextDown(bound);
+	}
+
+	/**
+	 * This method generates a random double in the range 0 (inclusive) to 1
+	 * (exclusive). The result can be any double value in this range with equal
+	 * chance. Because there are many more double values close to 0, the results
+	 * are <b>not</b> uniformly distributed over the range: most results will be
+	 * very small. This method was called nextDouble() in older versions.
+	 * 
+	 * @return a random double between 0 (inclusive) and 1 (exclusive)
+	 */
+	public double nextDenseDouble() {
+		long bits = nextBits(54);
+		byte b0 = BitPatterns.toByte(bits);
+		byte b1 = BitPatterns.toByte(bits >>> 8);
+		byte b2 = BitPatterns.toByte(bits >>> 16);
+		byte b3 = BitPatterns.toByte(bits >>> 24);
+		byte b4 = BitPatterns.toByte(bits >>> 32);
+		byte b5 = BitPatterns.toByte(bits >>> 40);
 		// now, the annoying part...
 		byte b6;
-		byte b7 = BitHelper.byteFromBinary(false, next(), next(), next(), next(), next(), next(), true);
+		byte b7 = BitPatterns.toByte((bits >>> 48) << 1 | 0x80);
 		if (b7 < 63) {
 			// the easier part
 			b6 = nextByte();
@@ -201,38 +344,63 @@ public abstract class Random {
 	}
 	
 	/**
-	 * This should be faster than nextInt(int), but the chances are less balanced
+	 * This method used to be a faster, but biased, alternative for nextInt(int). Now that nextInt(int) is
+	 * both fast and unbiased, this method simply calls nextInt(bound).
 	 * @param bound The bound, which is the maximum result + 1
 	 * @return a random int in the range [0, bound>
 	 */
 	public int fastNextInt(int bound) {
-		byte bits = getRequiredBits(bound - 1);
-		boolean[] bools = nextBooleans(bits);
-		int result = 0;
-		for (int index = 0; index < bools.length; index++) {
-			if (bools[index]) {
-				result += INT_2_POWERS[index];
-			}
-		}
-		if (result >= bound) {
-			result -= bound;
-		}
-		return result;
+		return nextInt(bound);
 	}
 
+	/**
+	 * Generates a random int in the range [0, bound>. Every int in that range has exactly the same chance
+	 * to be generated. This method multiplies 32 random bits by the bound and uses the upper 32 bits of the
+	 * product as result. The rare products that would make some results more likely than others are
+	 * rejected, which happens with a chance of less than 50% (and much less for bounds that are not close to
+	 * a large power of 2).
+	 * 
+	 * @param bound The bound, which is the maximum result + 1
+	 * @return a random int in the range [0, bound>
+	 * @throws IllegalArgumentException if bound is not positive
+	 */
 	public int nextInt(int bound) {
+		if (bound <= 0)
+			throw new IllegalArgumentException("The bound must be positive, but is " + bound);
+		return (int) nextIntInRange(bound);
+	}
+
+	/**
+	 * Generates a random int in the range [origin, bound>. Every int in that range has exactly the same
+	 * chance to be generated. The range can be larger than Integer.MAX_VALUE, for instance
+	 * nextInt(Integer.MIN_VALUE, Integer.MAX_VALUE) is allowed.
+	 * 
+	 * @param origin The minimum result
+	 * @param bound The maximum result + 1
+	 * @return a random int in the range [origin, bound>
+	 * @throws IllegalArgumentException if origin is not smaller than bound
+	 */
+	public int nextInt(int origin, int bound) {
+		if (origin >= bound)
+			throw new IllegalArgumentException("The bound (" + bound + ") must be greater than the origin (" + origin + ")");
+		return origin + (int) nextIntInRange((long) bound - origin);
+	}
+
+	/**
+	 * The bounded selection that nextInt(int) used before it became exactly uniform: it takes the required
+	 * number of bits until the result is smaller than the bound, and gives up with a biased result after 50
+	 * attempts. RandomArray and CrazyRandom still use this internally, so that their seeded streams stay the
+	 * same as in older versions of this library. New code should use nextInt(int) instead.
+	 * @param bound The bound, which is the maximum result + 1
+	 * @return a random int in the range [0, bound>
+	 */
+	int legacyNextInt(int bound) {
 		byte bits = getRequiredBits(bound - 1);
 		int safetyCounter = 0;
 		int result;
 		do {
-			boolean[] bools = nextBooleans(bits);
-			result = 0;
-			for (int index = 0; index < bools.length; index++) {
-				if (bools[index]) {
-					result += INT_2_POWERS[index];
-				}
-			}
-			
+			result = (int) nextBits(bits);
+
 			// Prevent freezes with broken random number generators
 			safetyCounter++;
 			if (safetyCounter > 50) {
@@ -243,13 +411,71 @@ public abstract class Random {
 		return result;
 	}
 
+	/**
+	 * Generates a random long in the range [0, range>, where range must be between 1 and 2^32 - 1
+	 */
+	private long nextIntInRange(long range) {
+		long product = nextBits(32) * range;
+		long low = product & 0xFFFFFFFFL;
+		if (low < range) {
+			long threshold = (1L << 32) % range;
+			while (low < threshold) {
+				product = nextBits(32) * range;
+				low = product & 0xFFFFFFFFL;
+			}
+		}
+		return product >>> 32;
+	}
+
+	/**
+	 * Generates a random long in the range [0, bound>. Every long in that range has exactly the same chance
+	 * to be generated. This works like nextInt(int), but with 64 random bits.
+	 * 
+	 * @param bound The bound, which is the maximum result + 1
+	 * @return a random long in the range [0, bound>
+	 * @throws IllegalArgumentException if bound is not positive
+	 */
 	public long nextLong(long bound) {
-		byte bits = getRequiredBits(bound - 1);
-		long result;
-		do {
-			result = BitHelper.numberFromBinary(nextBooleans(bits), bits, false);
-		} while (result >= bound);
-		return result;
+		if (bound <= 0)
+			throw new IllegalArgumentException("The bound must be positive, but is " + bound);
+		return nextLongInRange(bound);
+	}
+
+	/**
+	 * Generates a random long in the range [origin, bound>. Every long in that range has exactly the same
+	 * chance to be generated. The range can be larger than Long.MAX_VALUE, for instance
+	 * nextLong(Long.MIN_VALUE, Long.MAX_VALUE) is allowed.
+	 * 
+	 * @param origin The minimum result
+	 * @param bound The maximum result + 1
+	 * @return a random long in the range [origin, bound>
+	 * @throws IllegalArgumentException if origin is not smaller than bound
+	 */
+	public long nextLong(long origin, long bound) {
+		if (origin >= bound)
+			throw new IllegalArgumentException("The bound (" + bound + ") must be greater than the origin (" + origin + ")");
+		return origin + nextLongInRange(bound - origin);
+	}
+
+	/**
+	 * Generates a random long in the range [0, range>, where range is treated as an unsigned long (that
+	 * must not be 0)
+	 */
+	private long nextLongInRange(long range) {
+		long bits = nextBits(64);
+		long low = bits * range;
+		if (Long.compareUnsigned(low, range) < 0) {
+			long threshold = Long.remainderUnsigned(-range, range);
+			while (Long.compareUnsigned(low, threshold) < 0) {
+				bits = nextBits(64);
+				low = bits * range;
+			}
+		}
+		return unsignedMultiplyHigh(bits, range);
+	}
+
+	private static long unsignedMultiplyHigh(long x, long y) {
+		return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
 	}
 
 	/**
@@ -262,18 +488,103 @@ public abstract class Random {
 
 	public boolean[] nextBooleans(int size) {
 		boolean[] result = new boolean[size];
-		for (int index = 0; index < size; index++)
-			result[index] = next();
+		nextBooleans(result, 0, size);
 		return result;
 	}
 
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with random booleans. The result is the same
+	 * as the result of nextBooleans(length), but no array will be allocated.
+	 * 
+	 * @param target the array to store the booleans in
+	 * @param offset the index of the first boolean to generate
+	 * @param length the number of booleans to generate
+	 */
+	public void nextBooleans(boolean[] target, int offset, int length) {
+		for (int index = 0; index < length; index += 64) {
+			int amount = Math.min(64, length - index);
+			long bits = nextBits(amount);
+			for (int bitIndex = 0; bitIndex < amount; bitIndex++) {
+				target[offset + index + bitIndex] = (bits & (1L << bitIndex)) != 0;
+			}
+		}
+	}
+
+	/**
+	 * Generates the given amount of random bits and stores them packed in the target, using 1 bit per
+	 * boolean instead of the 8 bits that a boolean[] would use. The first generated bit will be stored at
+	 * bit index bitOffset, where bit index i is bit (i % 64) of target[i / 64], counting from the least
+	 * significant bit. The bits of the target outside the range are not changed. The generated bits are the
+	 * same as the booleans that nextBooleans(amount) would return.
+	 * 
+	 * @param target the array to store the bits in
+	 * @param bitOffset the bit index of the first bit to generate
+	 * @param amount the number of bits to generate
+	 */
+	public void nextBits(long[] target, int bitOffset, int amount) {
+		for (int index = 0; index < amount; index += 64) {
+			int chunkSize = Math.min(64, amount - index);
+			long bits = nextBits(chunkSize);
+			long chunkMask = -1L >>> (64 - chunkSize);
+			int bitIndex = bitOffset + index;
+			int wordIndex = bitIndex >>> 6;
+			int shift = bitIndex & 63;
+			target[wordIndex] = (target[wordIndex] & ~(chunkMask << shift)) | (bits << shift);
+			if (shift + chunkSize > 64) {
+				int remainingShift = 64 - shift;
+				target[wordIndex + 1] = (target[wordIndex + 1] & ~(chunkMask >>> remainingShift)) | (bits >>> remainingShift);
+			}
+		}
+	}
+
+	/**
+	 * Generates random bits for the bits of the target from fromIndex (inclusive) until toIndex (exclusive).
+	 * The generated bits are the same as the booleans that nextBooleans(toIndex - fromIndex) would return.
+	 * 
+	 * @param target the BitSet to store the bits in
+	 * @param fromIndex the index of the first bit to generate
+	 * @param toIndex the index after the last bit to generate
+	 */
+	public void nextBits(BitSet target, int fromIndex, int toIndex) {
+		for (int index = fromIndex; index < toIndex; index += 64) {
+			int amount = Math.min(64, toIndex - index);
+			long bits = nextBits(amount);
+			for (int bitIndex = 0; bitIndex < amount; bitIndex++) {
+				target.set(index + bitIndex, (bits & (1L << bitIndex)) != 0);
+			}
+		}
+	}
+
 	public byte[] nextBytes(int amount) {
 		byte[] result = new byte[amount];
-		for (int index = 0; index < amount; index++)
-			result[index] = nextByte();
+		nextBytes(result, 0, amount);
 		return result;
 	}
 
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with the results of nextByte().
+	 * 
+	 * @param target the array to store the bytes in
+	 * @param offset the index of the first byte to generate
+	 * @param length the number of bytes to generate
+	 */
+	public void nextBytes(byte[] target, int offset, int length) {
+		int end = offset + length;
+		for (int index = offset; index < end; index++)
+			target[index] = nextByte();
+	}
+
+	/**
+	 * Fills the remaining bytes of the target with the results of nextByte(). This works for both heap and
+	 * direct buffers. The position of the target will be moved to its limit.
+	 * 
+	 * @param target the buffer to store the bytes in
+	 */
+	public void nextBytes(ByteBuffer target) {
+		while (target.hasRemaining())
+			target.put(nextByte());
+	}
+
 	public char[] nextChars(int amount) {
 		char[] result = new char[amount];
 		for (int index = 0; index < amount; index++)
@@ -283,11 +594,51 @@ public abstract class Random {
 
 	public int[] nextInts(int amount) {
 		int[] result = new int[amount];
-		for (int index = 0; index < amount; index++)
-			result[index] = nextInt();
+		nextInts(result, 0, amount);
 		return result;
 	}
 
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with the results of nextInt().
+	 * 
+	 * @param target the array to store the ints in
+	 * @param offset the index of the first int to generate
+	 * @param length the number of ints to generate
+	 */
+	public void nextInts(int[] target, int offset, int length) {
+		int end = offset + length;
+		for (int index = offset; index < end; index++)
+			target[index] = nextInt();
+	}
+
+	/**
+	 * Fills the target with the results of nextInt(bound).
+	 * 
+	 * @param target the array to store the ints in
+	 * @param bound the bound of the ints, which is the maximum value + 1
+	 * @throws IllegalArgumentException if bound is not positive
+	 */
+	public void nextInts(int[] target, int bound) {
+		nextInts(target, 0, target.length, bound);
+	}
+
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with the results of nextInt(bound).
+	 * 
+	 * @param target the array to store the ints in
+	 * @param offset the index of the first int to generate
+	 * @param length the number of ints to generate
+	 * @param bound the bound of the ints, which is the maximum value + 1
+	 * @throws IllegalArgumentException if bound is not positive
+	 */
+	public void nextInts(int[] target, int offset, int length, int bound) {
+		if (bound <= 0)
+			throw new IllegalArgumentException("The bound must be positive, but is " + bound);
+		int end = offset + length;
+		for (int index = offset; index < end; index++)
+			target[index] = (int) nextIntInRange(bound);
+	}
+
 	public float[] nextFloats(int amount) {
 		float[] result = new float[amount];
 		for (int index = 0; index < amount; index++) {
@@ -298,16 +649,48 @@ public abstract class Random {
 
 	public long[] nextLongs(int amount) {
 		long[] result = new long[amount];
-		for (int index = 0; index < amount; index++)
-			result[index] = nextLong();
+		nextLongs(result, 0, amount);
 		return result;
 	}
 
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with the results of nextLong().
+	 * 
+	 * @param target the array to store the longs in
+	 * @param offset the index of the first long to generate
+	 * @param length the number of longs to generate
+	 */
+	public void nextLongs(long[] target, int offset, int length) {
+		int end = offset + length;
+		for (int index = offset; index < end; index++)
+			target[index] = nextLong();
+	}
+
 	public double[] nextDoubles(int amount) {
 		double[] result = new double[amount];
-		for (int index = 0; index < amount; index++) {
-			result[index] = nextDouble();
-		}
+		nextDoubles(result, 0, amount);
 		return result;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Fills the target with the results of nextDouble().
+	 * 
+	 * @param target the array to store the doubles in
+	 */
+	public void nextDoubles(double[] target) {
+		nextDoubles(target, 0, target.length);
+	}
+
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with the results of nextDouble().
+	 * 
+	 * @param target the array to store the doubles in
+	 * @param offset the index of the first double to generate
+	 * @param length the number of doubles to generate
+	 */
+	public void nextDoubles(double[] target, int offset, int length) {
+		int end = offset + length;
+		for (int index = offset; index < end; index++)
+			target[index] = nextDouble();
+	}
+}
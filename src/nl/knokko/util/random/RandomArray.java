@@ -23,8 +23,10 @@
  *******************************************************************************/
 package nl.knokko.util.random;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import nl.knokko.util.bits.BitHelper;
 import nl.knokko.util.bits.ByteArrayBitInput;
 
 public class RandomArray extends Random {
@@ -48,6 +50,45 @@ public class RandomArray extends Random {
 		return new RandomArray(source);
 	}
 
+	/**
+	 * Gives this RandomArray the same state as RandomArray.createPseudo(config, bytes) would have (the
+	 * configurations of the members won't be changed). This can be used to reuse a RandomArray instead of
+	 * creating a new one. All members of this RandomArray must be PseudoRandom's and the number of members
+	 * must be the number of members that createPseudo would create for the given bytes.
+	 * @param bytes The array containing the seed bytes
+	 * @param offset The index of the first seed byte
+	 * @param length The number of seed bytes
+	 * @throws IllegalArgumentException If the number of members doesn't match the number of bytes
+	 * @throws ClassCastException If not all members are PseudoRandom's
+	 */
+	public void reseedPseudo(byte[] bytes, int offset, int length) {
+		if (ceilDiv(length, 32) != source.length)
+			throw new IllegalArgumentException(length + " bytes require " + ceilDiv(length, 32) + " members, but there are " + source.length);
+		for (int sourceIndex = 0; sourceIndex < source.length; sourceIndex++) {
+			int byteIndex = sourceIndex * 32;
+			((PseudoRandom) source[sourceIndex]).reseed(readInt(bytes, offset, length, byteIndex),
+					readInt(bytes, offset, length, byteIndex + 4), readInt(bytes, offset, length, byteIndex + 8),
+					readInt(bytes, offset, length, byteIndex + 12), readInt(bytes, offset, length, byteIndex + 16),
+					readInt(bytes, offset, length, byteIndex + 20), readInt(bytes, offset, length, byteIndex + 24),
+					readInt(bytes, offset, length, byteIndex + 28));
+		}
+		index = 0;
+		counter = 0;
+	}
+
+	/**
+	 * Reads the int at the given index in the same way as ByteArrayBitInput would, except that the bytes
+	 * after the end of the range are treated as 0 (just like createPseudo does).
+	 */
+	private static int readInt(byte[] bytes, int offset, int length, int index) {
+		return BitHelper.makeInt(readByte(bytes, offset, length, index), readByte(bytes, offset, length, index + 1),
+				readByte(bytes, offset, length, index + 2), readByte(bytes, offset, length, index + 3));
+	}
+
+	private static byte readByte(byte[] bytes, int offset, int length, int index) {
+		return index < length ? bytes[offset + index] : 0;
+	}
+
 	private final Random[] source;
 	private int index;
 	private int counter;
@@ -65,12 +106,44 @@ public class RandomArray extends Random {
 		if (result)
 			counter++;
 		if (counter == 81 || counter == 82) {
-			index = source[index].nextInt(source.length);
+			index = source[index].legacyNextInt(source.length);
 			counter = 0;
 		}
 		return result;
 	}
 
+	@Override
+	void writeState(ByteBuffer buffer) {
+		buffer.putInt(source.length);
+		buffer.putInt(index);
+		buffer.putInt(counter);
+		for (Random random : source) {
+			RandomSnapshot.writeRandom(random, buffer);
+		}
+	}
+
+	@Override
+	int getStateSize() {
+		int size = 3 * 4;
+		for (Random random : source) {
+			size += RandomSnapshot.getRandomSize(random);
+		}
+		return size;
+	}
+
+	static RandomArray readState(ByteBuffer buffer) {
+		Random[] sources = new Random[buffer.getInt()];
+		int index = buffer.getInt();
+		int counter = buffer.getInt();
+		for (int sourceIndex = 0; sourceIndex < sources.length; sourceIndex++) {
+			sources[sourceIndex] = RandomSnapshot.readRandom(buffer);
+		}
+		RandomArray result = new RandomArray(sources);
+		result.index = index;
+		result.counter = counter;
+		return result;
+	}
+
 	@Override
 	public String toString() {
 		return Arrays.toString(source);
@@ -97,4 +170,16 @@ public class RandomArray extends Random {
 		clone.counter = counter;
 		return clone;
 	}
+
+	/**
+	 * Splits all members of this RandomArray and puts the children in a new RandomArray.
+	 */
+	@Override
+	public RandomArray split() {
+		Random[] array = new Random[source.length];
+		for (int index = 0; index < array.length; index++) {
+			array[index] = source[index].split();
+		}
+		return new RandomArray(array);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,421 @@
+package nl.knokko.util.random;
+
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.random.RandomGenerator;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Makes an instance of nl.knokko.util.random.Random usable as a java.util.random.RandomGenerator, so it can
+ * be passed to the APIs of the JDK. The ints, longs and doubles of the generator are taken from whole words
+ * of the backing random (through nextBits), so they don't need a next() call per bit. The bounded ints and
+ * longs, and the floats and doubles, are generated by the corresponding methods of the backing random.
+ *
+ * The streams returned by ints(), longs() and doubles() split the backing random (see Random.split()) when
+ * they are split for parallel processing, so every part of a parallel stream gets its own independent
+ * generator. If the backing random can't be split, the streams can't be split either and will be processed
+ * sequentially.
+ *
+ * Just like the backing random, an instance of this class should not be used by multiple threads at the same
+ * time (unless the backing random is a ConcurrentRandom).
+ * @author knokko
+ *
+ */
+public class RandomGeneratorAdapter implements RandomGenerator {
+
+	private final Random random;
+
+	public RandomGeneratorAdapter(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * @return the random instance that is used by this generator
+	 */
+	public Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * Creates a java.util.Random that takes its bits from the backing random of this generator. This can be
+	 * used for older APIs that only accept a java.util.Random, like Collections.shuffle. The seed of the
+	 * returned java.util.Random can't be changed.
+	 *
+	 * @return a java.util.Random that uses the backing random of this generator
+	 */
+	public java.util.Random asJavaRandom() {
+		return new UtilRandom(random);
+	}
+
+	@Override
+	public long nextLong() {
+		return random.nextLong();
+	}
+
+	@Override
+	public int nextInt() {
+		return random.nextInt();
+	}
+
+	@Override
+	public int nextInt(int bound) {
+		return random.nextInt(bound);
+	}
+
+	@Override
+	public int nextInt(int origin, int bound) {
+		return random.nextInt(origin, bound);
+	}
+
+	@Override
+	public long nextLong(long bound) {
+		return random.nextLong(bound);
+	}
+
+	@Override
+	public long nextLong(long origin, long bound) {
+		return random.nextLong(origin, bound);
+	}
+
+	@Override
+	public float nextFloat() {
+		return random.nextFloat();
+	}
+
+	@Override
+	public float nextFloat(float origin, float bound) {
+		return random.nextFloat(origin, bound);
+	}
+
+	@Override
+	public double nextDouble() {
+		return random.nextDouble();
+	}
+
+	@Override
+	public double nextDouble(double origin, double bound) {
+		return random.nextDouble(origin, bound);
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return random.next();
+	}
+
+	@Override
+	public IntStream ints() {
+		return intStream(Long.MAX_VALUE, Integer.MAX_VALUE, 0);
+	}
+
+	@Override
+	public IntStream ints(long streamSize) {
+		checkStreamSize(streamSize);
+		return intStream(streamSize, Integer.MAX_VALUE, 0);
+	}
+
+	@Override
+	public IntStream ints(int randomNumberOrigin, int randomNumberBound) {
+		checkRange(randomNumberOrigin < randomNumberBound);
+		return intStream(Long.MAX_VALUE, randomNumberOrigin, randomNumberBound);
+	}
+
+	@Override
+	public IntStream ints(long streamSize, int randomNumberOrigin, int randomNumberBound) {
+		checkStreamSize(streamSize);
+		checkRange(randomNumberOrigin < randomNumberBound);
+		return intStream(streamSize, randomNumberOrigin, randomNumberBound);
+	}
+
+	@Override
+	public LongStream longs() {
+		return longStream(Long.MAX_VALUE, Long.MAX_VALUE, 0);
+	}
+
+	@Override
+	public LongStream longs(long streamSize) {
+		checkStreamSize(streamSize);
+		return longStream(streamSize, Long.MAX_VALUE, 0);
+	}
+
+	@Override
+	public LongStream longs(long randomNumberOrigin, long randomNumberBound) {
+		checkRange(randomNumberOrigin < randomNumberBound);
+		return longStream(Long.MAX_VALUE, randomNumberOrigin, randomNumberBound);
+	}
+
+	@Override
+	public LongStream longs(long streamSize, long randomNumberOrigin, long randomNumberBound) {
+		checkStreamSize(streamSize);
+		checkRange(randomNumberOrigin < randomNumberBound);
+		return longStream(streamSize, randomNumberOrigin, randomNumberBound);
+	}
+
+	@Override
+	public DoubleStream doubles() {
+		return doubleStream(Long.MAX_VALUE, Double.MAX_VALUE, 0.0);
+	}
+
+	@Override
+	public DoubleStream doubles(long streamSize) {
+		checkStreamSize(streamSize);
+		return doubleStream(streamSize, Double.MAX_VALUE, 0.0);
+	}
+
+	@Override
+	public DoubleStream doubles(double randomNumberOrigin, double randomNumberBound) {
+		checkRange(randomNumberOrigin < randomNumberBound && randomNumberBound - randomNumberOrigin < Double.POSITIVE_INFINITY);
+		return doubleStream(Long.MAX_VALUE, randomNumberOrigin, randomNumberBound);
+	}
+
+	@Override
+	public DoubleStream doubles(long streamSize, double randomNumberOrigin, double randomNumberBound) {
+		checkStreamSize(streamSize);
+		checkRange(randomNumberOrigin < randomNumberBound && randomNumberBound - randomNumberOrigin < Double.POSITIVE_INFINITY);
+		return doubleStream(streamSize, randomNumberOrigin, randomNumberBound);
+	}
+
+	private IntStream intStream(long size, int origin, int bound) {
+		return StreamSupport.intStream(new IntsSpliterator(this, 0, size, origin, bound), false);
+	}
+
+	private LongStream longStream(long size, long origin, long bound) {
+		return StreamSupport.longStream(new LongsSpliterator(this, 0, size, origin, bound), false);
+	}
+
+	private DoubleStream doubleStream(long size, double origin, double bound) {
+		return StreamSupport.doubleStream(new DoublesSpliterator(this, 0, size, origin, bound), false);
+	}
+
+	private static void checkStreamSize(long streamSize) {
+		if (streamSize < 0)
+			throw new IllegalArgumentException("The stream size must be non-negative, but is " + streamSize);
+	}
+
+	private static void checkRange(boolean valid) {
+		if (!valid)
+			throw new IllegalArgumentException("The bound must be greater than the origin");
+	}
+
+	/**
+	 * The common part of the spliterators: the range of stream elements and the generator that produces them.
+	 * When the origin is not smaller than the bound, the values are unbounded.
+	 */
+	private static abstract class RandomSpliterator {
+
+		RandomGeneratorAdapter generator;
+		long index;
+		final long fence;
+
+		/**
+		 * This is set to false when the backing random turns out to not support splitting
+		 */
+		boolean splittable = true;
+
+		RandomSpliterator(RandomGeneratorAdapter generator, long index, long fence) {
+			this.generator = generator;
+			this.index = index;
+			this.fence = fence;
+		}
+
+		/**
+		 * Splits the generator of this spliterator, or returns null if that is not possible.
+		 */
+		RandomGeneratorAdapter splitGenerator() {
+			if (!splittable || fence - index < 2) {
+				return null;
+			}
+			try {
+				return new RandomGeneratorAdapter(generator.random.split());
+			} catch (UnsupportedOperationException unsupported) {
+				splittable = false;
+				return null;
+			}
+		}
+
+		long splitIndex() {
+			return index + ((fence - index) >>> 1);
+		}
+
+		public long estimateSize() {
+			return fence - index;
+		}
+
+		public int characteristics() {
+			return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+		}
+	}
+
+	private static class IntsSpliterator extends RandomSpliterator implements Spliterator.OfInt {
+
+		final int origin;
+		final int bound;
+
+		IntsSpliterator(RandomGeneratorAdapter generator, long index, long fence, int origin, int bound) {
+			super(generator, index, fence);
+			this.origin = origin;
+			this.bound = bound;
+		}
+
+		int nextValue() {
+			return origin < bound ? generator.nextInt(origin, bound) : generator.nextInt();
+		}
+
+		@Override
+		public IntsSpliterator trySplit() {
+			RandomGeneratorAdapter child = splitGenerator();
+			if (child == null) {
+				return null;
+			}
+			long middle = splitIndex();
+			IntsSpliterator prefix = new IntsSpliterator(child, index, middle, origin, bound);
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			if (index < fence) {
+				action.accept(nextValue());
+				index++;
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			long end = fence;
+			for (long current = index; current < end; current++) {
+				action.accept(nextValue());
+			}
+			index = end;
+		}
+	}
+
+	private static class LongsSpliterator extends RandomSpliterator implements Spliterator.OfLong {
+
+		final long origin;
+		final long bound;
+
+		LongsSpliterator(RandomGeneratorAdapter generator, long index, long fence, long origin, long bound) {
+			super(generator, index, fence);
+			this.origin = origin;
+			this.bound = bound;
+		}
+
+		long nextValue() {
+			return origin < bound ? generator.nextLong(origin, bound) : generator.nextLong();
+		}
+
+		@Override
+		public LongsSpliterator trySplit() {
+			RandomGeneratorAdapter child = splitGenerator();
+			if (child == null) {
+				return null;
+			}
+			long middle = splitIndex();
+			LongsSpliterator prefix = new LongsSpliterator(child, index, middle, origin, bound);
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			if (index < fence) {
+				action.accept(nextValue());
+				index++;
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(LongConsumer action) {
+			long end = fence;
+			for (long current = index; current < end; current++) {
+				action.accept(nextValue());
+			}
+			index = end;
+		}
+	}
+
+	private static class DoublesSpliterator extends RandomSpliterator implements Spliterator.OfDouble {
+
+		final double origin;
+		final double bound;
+
+		DoublesSpliterator(RandomGeneratorAdapter generator, long index, long fence, double origin, double bound) {
+			super(generator, index, fence);
+			this.origin = origin;
+			this.bound = bound;
+		}
+
+		double nextValue() {
+			return origin < bound ? generator.nextDouble(origin, bound) : generator.nextDouble();
+		}
+
+		@Override
+		public DoublesSpliterator trySplit() {
+			RandomGeneratorAdapter child = splitGenerator();
+			if (child == null) {
+				return null;
+			}
+			long middle = splitIndex();
+			DoublesSpliterator prefix = new DoublesSpliterator(child, index, middle, origin, bound);
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public boolean tryAdvance(DoubleConsumer action) {
+			if (index < fence) {
+				action.accept(nextValue());
+				index++;
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public void forEachRemaining(DoubleConsumer action) {
+			long end = fence;
+			for (long current = index; current < end; current++) {
+				action.accept(nextValue());
+			}
+			index = end;
+		}
+	}
+
+	/**
+	 * A java.util.Random that takes its bits from a nl.knokko.util.random.Random.
+	 */
+	private static class UtilRandom extends java.util.Random {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient Random random;
+		private final boolean initialized;
+
+		UtilRandom(Random random) {
+			this.random = random;
+			this.initialized = true;
+		}
+
+		@Override
+		protected int next(int bits) {
+			return (int) random.nextBits(bits);
+		}
+
+		@Override
+		public void setSeed(long seed) {
+			// The constructor of java.util.Random calls this method, which should be ignored
+			if (initialized)
+				throw new UnsupportedOperationException("The seed of this random can't be changed");
+		}
+	}
+}
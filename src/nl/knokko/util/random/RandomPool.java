@@ -0,0 +1,164 @@
+package nl.knokko.util.random;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Maintains a file with a pool of precomputed random words, which can be shared by any number of processes
+ * on the same machine: every process can read the pool with a PooledRandom, which maps the file in memory
+ * instead of copying it. This is useful when the generator of the words is slow.
+ *
+ * A single process should own the RandomPool and call refresh() periodically (for instance with a
+ * ScheduledExecutorService). Every refresh writes a complete new generation of the pool to a temporary file
+ * in the same directory, and then atomically renames it to the pool file. Readers that have mapped the
+ * previous generation keep reading it without interruption, and readers that open the pool file afterwards
+ * will get the new generation, so no reader will ever see a partially written pool. Note that the rename
+ * may fail on operating systems that don't allow replacing files that are mapped by other processes.
+ *
+ * On file systems with POSIX permissions, the pool file gets the permissions rw-r--r--, so processes of
+ * other users can read it as well (if they can access the directory). On other file systems, the pool file
+ * gets the default permissions of a temporary file.
+ *
+ * The pool file starts with a header of HEADER_SIZE bytes: a magic number, the format version, the
+ * generation and the number of words. The words follow directly after the header. All values are stored
+ * in little endian byte order.
+ * @author knokko
+ *
+ */
+public final class RandomPool {
+
+	static final int MAGIC = 0x524e4450;
+	static final int VERSION = 1;
+
+	/**
+	 * The size of the header of a pool file in bytes. This is a multiple of 8, so the words are aligned.
+	 */
+	public static final int HEADER_SIZE = 4 + 4 + 8 + 8;
+
+	/**
+	 * The largest number of words a pool file can contain, because the whole file must fit in a single
+	 * memory mapping
+	 */
+	public static final int MAX_WORDS = 1 << 27;
+
+	private static final Set<PosixFilePermission> POOL_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
+	private final Path file;
+	private final Random source;
+	private final int wordCount;
+
+	private long generation;
+
+	/**
+	 * Creates a RandomPool and writes its first generation. If the file already contains a pool, the
+	 * generations will continue after the generation of that pool.
+	 * @param file The path of the pool file
+	 * @param source The generator to take the words from. It will only be used by refresh().
+	 * @param wordCount The number of words in the pool, must be a power of 2 and at most MAX_WORDS
+	 * @throws IOException If the pool couldn't be written
+	 * @throws IllegalArgumentException If the word count is invalid
+	 */
+	public RandomPool(Path file, Random source, int wordCount) throws IOException {
+		if (wordCount <= 0 || wordCount > MAX_WORDS || Integer.bitCount(wordCount) != 1)
+			throw new IllegalArgumentException("The word count must be a power of 2 of at most " + MAX_WORDS + ", but is " + wordCount);
+		this.file = file.toAbsolutePath();
+		this.source = source;
+		this.wordCount = wordCount;
+		try {
+			this.generation = readGeneration(this.file);
+		} catch (NoSuchFileException | IllegalArgumentException noPool) {
+			this.generation = 0;
+		}
+		refresh();
+	}
+
+	/**
+	 * Writes a new generation of the pool and replaces the pool file with it.
+	 * @return the generation that was written
+	 * @throws IOException If the pool couldn't be written. The previous generation will stay in place.
+	 */
+	public synchronized long refresh() throws IOException {
+		long nextGeneration = generation + 1;
+		Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+		try {
+
+			// Temporary files are only readable by their owner, but the pool must be readable by other users
+			if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+				Files.setPosixFilePermissions(temporary, POOL_PERMISSIONS);
+			}
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + 8L * wordCount);
+				mapped.order(ByteOrder.LITTLE_ENDIAN);
+				mapped.putInt(MAGIC);
+				mapped.putInt(VERSION);
+				mapped.putLong(nextGeneration);
+				mapped.putLong(wordCount);
+				for (int index = 0; index < wordCount; index++) {
+					mapped.putLong(source.nextBits(64));
+				}
+				mapped.force();
+			}
+			Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException | RuntimeException failure) {
+			Files.deleteIfExists(temporary);
+			throw failure;
+		}
+		generation = nextGeneration;
+		return nextGeneration;
+	}
+
+	/**
+	 * @return the generation that was written most recently
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	/**
+	 * Reads the generation of a pool file
+	 * @throws IllegalArgumentException If the file doesn't contain a valid pool
+	 */
+	static long readGeneration(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, HEADER_SIZE));
+			validate(header, fileSize);
+			return header.getLong(8);
+		}
+	}
+
+	/**
+	 * Checks that the buffer starts with a valid pool header for a file of the given size, and sets the byte
+	 * order of the buffer to little endian
+	 * @throws IllegalArgumentException If the header is invalid
+	 */
+	static void validate(ByteBuffer mapped, long fileSize) {
+		mapped.order(ByteOrder.LITTLE_ENDIAN);
+		if (fileSize < HEADER_SIZE || mapped.getInt(0) != MAGIC)
+			throw new IllegalArgumentException("The file doesn't contain a random pool");
+		if (mapped.getInt(4) != VERSION)
+			throw new IllegalArgumentException("Unsupported random pool version " + mapped.getInt(4));
+		long wordCount = mapped.getLong(16);
+		if (wordCount <= 0 || wordCount > MAX_WORDS || Long.bitCount(wordCount) != 1 || fileSize != HEADER_SIZE + 8 * wordCount)
+			throw new IllegalArgumentException("The random pool has an invalid size");
+	}
+}
@@ -0,0 +1,167 @@
+package nl.knokko.util.random;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Saves and restores the complete state of random number generators in a compact binary format. Unlike
+ * clone(), snapshots can be stored on disk, and unlike CrazyRandom.saveToFile, they include all hidden
+ * state (like counters and indices). A pseudo random number generator that is restored from a snapshot
+ * will continue exactly where the original was when the snapshot was taken. Generators that consist of
+ * other generators (like RandomArray and PeriodicRandom) are saved together with their members.
+ * 
+ * A snapshot starts with a magic number and the format version, followed by the type and state of the
+ * generator. All values are written in the byte order of the buffer.
+ * 
+ * Snapshots are supported by all generators of this package except the ones that share their state with
+ * other threads or processes. Subclasses of the generators are not supported because their additional
+ * state would be lost.
+ * @author knokko
+ *
+ */
+public final class RandomSnapshot {
+	
+	private static final int MAGIC = 0x524e4453;
+	
+	/**
+	 * The version of the snapshot format. This will be incremented whenever the format changes in a way that
+	 * old snapshots can't be read anymore.
+	 */
+	public static final byte VERSION = 1;
+	
+	private static final int HEADER_SIZE = 4 + 1;
+	
+	private static final byte TYPE_PSEUDO = 1;
+	private static final byte TYPE_ARRAY = 2;
+	private static final byte TYPE_PERIODIC = 3;
+	private static final byte TYPE_INT_MATRIX = 4;
+	private static final byte TYPE_JAVA = 5;
+	private static final byte TYPE_FAKE = 6;
+	private static final byte TYPE_CRAZY = 7;
+	private static final byte TYPE_INT_MATRIX_OUTPUT_MODE = 8;
+	
+	private RandomSnapshot() {}
+	
+	/**
+	 * @param random The generator to save
+	 * @return the number of bytes that write(random, buffer) will write
+	 * @throws UnsupportedOperationException If the generator doesn't support snapshots
+	 */
+	public static int getSize(Random random) {
+		return HEADER_SIZE + getRandomSize(random);
+	}
+	
+	/**
+	 * Writes a snapshot of the given generator to the buffer, starting at its current position. The
+	 * buffer must have at least getSize(random) remaining bytes.
+	 * @param random The generator to save
+	 * @param buffer The buffer to write the snapshot to
+	 * @throws UnsupportedOperationException If the generator doesn't support snapshots
+	 */
+	public static void write(Random random, ByteBuffer buffer) {
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+		writeRandom(random, buffer);
+	}
+	
+	/**
+	 * Reads a snapshot from the buffer, starting at its current position. After this method returns, the
+	 * position of the buffer will be right after the snapshot.
+	 * @param buffer The buffer to read the snapshot from
+	 * @return A generator with the state that is stored in the snapshot
+	 * @throws IllegalArgumentException If the buffer doesn't contain a valid snapshot
+	 */
+	public static Random read(ByteBuffer buffer) {
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new IllegalArgumentException("The buffer doesn't contain a random snapshot");
+			}
+			byte version = buffer.get();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported snapshot version " + version);
+			}
+			return readRandom(buffer);
+		} catch (BufferUnderflowException underflow) {
+			throw new IllegalArgumentException("The snapshot is incomplete", underflow);
+		}
+	}
+	
+	/**
+	 * Writes a snapshot of the generator to the file channel, starting at the given file position. The
+	 * snapshot is written directly into a memory mapping of the file.
+	 * @param random The generator to save
+	 * @param channel The file channel, which must be opened for reading and writing
+	 * @param position The file position to write the snapshot at
+	 * @return the number of bytes that were written
+	 * @throws IOException If the snapshot couldn't be written
+	 */
+	public static int write(Random random, FileChannel channel, long position) throws IOException {
+		int size = getSize(random);
+		ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+		write(random, mapped);
+		return size;
+	}
+	
+	/**
+	 * Reads a snapshot from the file channel, starting at the given file position. The snapshot is read
+	 * directly from a memory mapping of the file.
+	 * @param channel The file channel, which must be opened for reading
+	 * @param position The file position where the snapshot starts
+	 * @return A generator with the state that is stored in the snapshot
+	 * @throws IOException If the file couldn't be read
+	 * @throws IllegalArgumentException If the file doesn't contain a valid snapshot at the position
+	 */
+	public static Random read(FileChannel channel, long position) throws IOException {
+		return read(channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position));
+	}
+	
+	private static byte getType(Random random) {
+		Class<?> type = random.getClass();
+		if (type == PseudoRandom.class) {
+			return TYPE_PSEUDO;
+		} else if (type == RandomArray.class) {
+			return TYPE_ARRAY;
+		} else if (type == PeriodicRandom.class) {
+			return TYPE_PERIODIC;
+		} else if (type == IntMatrixRandom.class) {
+			// The classic output mode keeps the original format, so that older snapshots stay readable
+			boolean classic = ((IntMatrixRandom) random).getOutputMode() == IntMatrixRandom.OutputMode.CLASSIC;
+			return classic ? TYPE_INT_MATRIX : TYPE_INT_MATRIX_OUTPUT_MODE;
+		} else if (type == JavaRandom.class) {
+			return TYPE_JAVA;
+		} else if (type == FakeRandom.class) {
+			return TYPE_FAKE;
+		} else if (type == CrazyRandom.class) {
+			return TYPE_CRAZY;
+		} else {
+			throw new UnsupportedOperationException(type.getName() + " doesn't support snapshots");
+		}
+	}
+	
+	static int getRandomSize(Random random) {
+		getType(random);
+		return 1 + random.getStateSize();
+	}
+	
+	static void writeRandom(Random random, ByteBuffer buffer) {
+		buffer.put(getType(random));
+		random.writeState(buffer);
+	}
+	
+	static Random readRandom(ByteBuffer buffer) {
+		byte type = buffer.get();
+		switch (type) {
+		case TYPE_PSEUDO: return PseudoRandom.readState(buffer);
+		case TYPE_ARRAY: return RandomArray.readState(buffer);
+		case TYPE_PERIODIC: return PeriodicRandom.readState(buffer);
+		case TYPE_INT_MATRIX: return IntMatrixRandom.readState(buffer, false);
+		case TYPE_INT_MATRIX_OUTPUT_MODE: return IntMatrixRandom.readState(buffer, true);
+		case TYPE_JAVA: return JavaRandom.readState(buffer);
+		case TYPE_FAKE: return new FakeRandom();
+		case TYPE_CRAZY: return CrazyRandom.readState(buffer);
+		default: throw new IllegalArgumentException("Unknown random type " + type);
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package nl.knokko.util.random.distribution;
+
+import nl.knokko.util.random.Random;
+
+/**
+ * Chooses random indices with given weights in constant time, using the alias method of Walker with the
+ * construction algorithm of Vose. The table has a column for every index. Every column contains a threshold
+ * and an alias: to draw an index, a uniformly random column is chosen and then a uniform number is compared
+ * with the threshold of that column to choose between the column itself and its alias.
+ *
+ * A draw needs a single 64-bit word of the random: the upper 32 bits choose the column (with the exact
+ * multiply-shift method of Random.nextInt(int)) and the lower 32 bits are compared with the threshold. The
+ * threshold and the alias of a column are packed in a single long, so a draw only reads 1 array element.
+ *
+ * An AliasTable is immutable, so it can be shared by any number of threads, as long as every thread uses
+ * its own Random.
+ * @author knokko
+ *
+ */
+public final class AliasTable {
+
+	/**
+	 * For every column, the upper 32 bits are the threshold (as unsigned int, scaled by 2^32) and the lower
+	 * 32 bits are the alias. A random 32-bit number below the threshold chooses the column itself, other
+	 * numbers choose the alias.
+	 */
+	private final long[] table;
+
+	/**
+	 * Creates an AliasTable for the given weights. The chance that index i is drawn will be weights[i]
+	 * divided by the sum of all weights. This takes O(weights.length) time.
+	 * @param weights The weights of the indices
+	 * @throws IllegalArgumentException If there are no weights, a weight is negative or not finite, or all
+	 * weights are 0
+	 */
+	public AliasTable(double[] weights) {
+		if (weights.length == 0)
+			throw new IllegalArgumentException("At least 1 weight is required");
+		double sum = 0;
+		for (double weight : weights) {
+			if (!(weight >= 0 && weight < Double.POSITIVE_INFINITY))
+				throw new IllegalArgumentException("All weights must be non-negative and finite, but one is " + weight);
+			sum += weight;
+		}
+		if (!(sum > 0 && sum < Double.POSITIVE_INFINITY))
+			throw new IllegalArgumentException("The sum of the weights must be positive and finite, but is " + sum);
+		table = build(weights, weights.length / sum);
+	}
+
+	/**
+	 * Creates an AliasTable for the given weights. The chance that index i is drawn will be weights[i]
+	 * divided by the sum of all weights. This takes O(weights.length) time.
+	 * @param weights The weights of the indices
+	 * @throws IllegalArgumentException If there are no weights, a weight is negative, or all weights are 0
+	 */
+	public AliasTable(int[] weights) {
+		this(toDoubles(weights));
+	}
+
+	private static double[] toDoubles(int[] weights) {
+		double[] result = new double[weights.length];
+		for (int index = 0; index < weights.length; index++) {
+			result[index] = weights[index];
+		}
+		return result;
+	}
+
+	/**
+	 * The algorithm of Vose. Every column starts with the scaled weight of its own index. Columns with a
+	 * scaled weight below 1 (small) are filled up with the excess of a column with a scaled weight of at
+	 * least 1 (large), which becomes their alias.
+	 * @param scale The number of columns divided by the sum of the weights
+	 */
+	private static long[] build(double[] weights, double scale) {
+		int size = weights.length;
+		double[] scaled = new double[size];
+
+		// small and large are used as 2 stacks that grow towards each other in the same array
+		int[] worklist = new int[size];
+		int smallCount = 0;
+		int largeStart = size;
+		for (int index = 0; index < size; index++) {
+			scaled[index] = weights[index] * scale;
+			if (scaled[index] < 1) {
+				worklist[smallCount++] = index;
+			} else {
+				worklist[--largeStart] = index;
+			}
+		}
+
+		long[] table = new long[size];
+		while (smallCount > 0 && largeStart < size) {
+			int small = worklist[--smallCount];
+			int large = worklist[largeStart++];
+			table[small] = pack(scaled[small], large);
+			scaled[large] = (scaled[large] + scaled[small]) - 1;
+			if (scaled[large] < 1) {
+				worklist[smallCount++] = large;
+			} else {
+				worklist[--largeStart] = large;
+			}
+		}
+
+		// The remaining columns should have a scaled weight of exactly 1, apart from rounding errors
+		while (largeStart < size) {
+			int large = worklist[largeStart++];
+			table[large] = pack(1, large);
+		}
+		while (smallCount > 0) {
+			int small = worklist[--smallCount];
+			table[small] = pack(1, small);
+		}
+		return table;
+	}
+
+	private static long pack(double probability, int alias) {
+		long threshold = Math.min((long) (probability * 0x1.0p32), 0xFFFFFFFFL);
+		return threshold << 32 | alias;
+	}
+
+	/**
+	 * @return the number of indices (and weights) of this table
+	 */
+	public int size() {
+		return table.length;
+	}
+
+	/**
+	 * Draws a random index.
+	 * @param random The random to take the random bits from
+	 * @return an index between 0 (inclusive) and size() (exclusive), chosen with the chances of the weights
+	 */
+	public int sample(Random random) {
+		return sample(random, table);
+	}
+
+	private static int sample(Random random, long[] table) {
+		long size = table.length;
+		long bits = random.nextBits(64);
+		long product = (bits >>> 32) * size;
+		if ((product & 0xFFFFFFFFL) < size) {
+			long limit = (1L << 32) % size;
+			while ((product & 0xFFFFFFFFL) < limit) {
+				bits = random.nextBits(64);
+				product = (bits >>> 32) * size;
+			}
+		}
+		int column = (int) (product >>> 32);
+		long entry = table[column];
+		return (bits & 0xFFFFFFFFL) < (entry >>> 32) ? column : (int) entry;
+	}
+
+	/**
+	 * Fills the target with random indices.
+	 * @param random The random to take the random bits from
+	 * @param target The array to store the indices in
+	 */
+	public void sample(Random random, int[] target) {
+		sample(random, target, 0, target.length);
+	}
+
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with random indices.
+	 * @param random The random to take the random bits from
+	 * @param target The array to store the indices in
+	 * @param offset The index of the first element to fill
+	 * @param length The number of indices to draw
+	 */
+	public void sample(Random random, int[] target, int offset, int length) {
+		long[] table = this.table;
+		int end = offset + length;
+		for (int index = offset; index < end; index++) {
+			target[index] = sample(random, table);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package nl.knokko.util.random.distribution;
+
+import nl.knokko.util.random.Random;
+
+/**
+ * Generates beta distributed doubles. A sample is computed as X / (X + Y) where X and Y are gamma distributed
+ * with shapes alpha and beta (see Gamma). When alpha or beta is smaller than 1, this is computed from the
+ * logarithms of X and Y, because X and Y can be too small to be represented as doubles.
+ * @author knokko
+ *
+ */
+public final class Beta {
+
+	private Beta() {}
+
+	private static void checkParameters(double alpha, double beta) {
+		if (!(alpha > 0 && alpha < Double.POSITIVE_INFINITY))
+			throw new IllegalArgumentException("Alpha must be positive and finite, but is " + alpha);
+		if (!(beta > 0 && beta < Double.POSITIVE_INFINITY))
+			throw new IllegalArgumentException("Beta must be positive and finite, but is " + beta);
+	}
+
+	/**
+	 * @param random The random to take the random bits from
+	 * @param alpha The first shape parameter of the distribution
+	 * @param beta The second shape parameter of the distribution
+	 * @return a beta distributed double (between 0 and 1) with the given shape parameters
+	 * @throws IllegalArgumentException if alpha or beta is not positive and finite
+	 */
+	public static double next(Random random, double alpha, double beta) {
+		checkParameters(alpha, beta);
+		return nextUnchecked(random, alpha, beta);
+	}
+
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with beta distributed doubles with the given
+	 * shape parameters. The parameters of the gamma samplers are only computed once.
+	 * @throws IllegalArgumentException if alpha or beta is not positive and finite
+	 */
+	public static void fill(Random random, double[] target, int offset, int length, double alpha, double beta) {
+		checkParameters(alpha, beta);
+		Gamma.Parameters gammaX = new Gamma.Parameters(alpha);
+		Gamma.Parameters gammaY = new Gamma.Parameters(beta);
+		int end = offset + length;
+		for (int index = offset; index < end; index++) {
+			target[index] = next(random, gammaX, gammaY);
+		}
+	}
+
+	private static double nextUnchecked(Random random, double alpha, double beta) {
+		return next(random, new Gamma.Parameters(alpha), new Gamma.Parameters(beta));
+	}
+
+	private static double next(Random random, Gamma.Parameters gammaX, Gamma.Parameters gammaY) {
+		if (gammaX.small || gammaY.small) {
+
+			// Gamma samples with small shapes often underflow to 0, which would give 0 / 0, so use their
+			// logarithms instead: X / (X + Y) = 1 / (1 + e^(log(Y) - log(X)))
+			double logX = gammaX.nextLog(random);
+			double logY = gammaY.nextLog(random);
+			return 1 / (1 + StrictMath.exp(logY - logX));
+		}
+		double x = gammaX.next(random);
+		double y = gammaY.next(random);
+		return x / (x + y);
+	}
+}
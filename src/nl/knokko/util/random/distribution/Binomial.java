@@ -0,0 +1,153 @@
+package nl.knokko.util.random.distribution;
+
+import nl.knokko.util.random.Random;
+
+/**
+ * Generates binomially distributed ints. When the mean is small (trials * min(p, 1 - p) below 10), the
+ * inversion method is used, which needs about 1 uniform double per sample. Larger means use the transformed
+ * rejection method with squeeze (BTRS) of Hormann, which needs about 2 uniform doubles per sample no matter
+ * how large the number of trials is.
+ *
+ * All computations use StrictMath, so the results only depend on the state of the random and not on the
+ * machine.
+ * @author knokko
+ *
+ */
+public final class Binomial {
+
+	/**
+	 * Means below this threshold use inversion, larger means use BTRS
+	 */
+	private static final double BTRS_THRESHOLD = 10;
+
+	private Binomial() {}
+
+	private static void checkParameters(int trials, double probability) {
+		if (trials < 0)
+			throw new IllegalArgumentException("The number of trials must not be negative, but is " + trials);
+		if (!(probability >= 0 && probability <= 1))
+			throw new IllegalArgumentException("The probability must be between 0 and 1, but is " + probability);
+	}
+
+	/**
+	 * @param random The random to take the random bits from
+	 * @param trials The number of trials
+	 * @param probability The success probability of every trial
+	 * @return the number of successful trials, which is binomially distributed
+	 * @throws IllegalArgumentException if trials is negative or probability is not between 0 and 1
+	 */
+	public static int next(Random random, int trials, double probability) {
+		checkParameters(trials, probability);
+		return new Parameters(trials, probability).next(random);
+	}
+
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with binomially distributed ints. The
+	 * parameters of the algorithm are only computed once.
+	 * @throws IllegalArgumentException if trials is negative or probability is not between 0 and 1
+	 */
+	public static void fill(Random random, int[] target, int offset, int length, int trials, double probability) {
+		checkParameters(trials, probability);
+		Parameters parameters = new Parameters(trials, probability);
+		int end = offset + length;
+		for (int index = offset; index < end; index++) {
+			target[index] = parameters.next(random);
+		}
+	}
+
+	/**
+	 * The constants of the algorithms for a given number of trials and probability. When the probability is
+	 * larger than 0.5, the number of failures is generated instead (with probability 1 - p).
+	 */
+	private static class Parameters {
+
+		final int n;
+		final double p, q;
+		final boolean flipped;
+		final boolean useBTRS;
+
+		// Inversion
+		final double qn;
+		final double bound;
+
+		// BTRS
+		final double a, b, c, vr, alpha, logRatio, h;
+		final long m;
+
+		Parameters(int trials, double probability) {
+			this.n = trials;
+			this.flipped = probability > 0.5;
+			this.p = flipped ? 1 - probability : probability;
+			this.q = 1 - p;
+			double mean = n * p;
+			this.useBTRS = mean >= BTRS_THRESHOLD;
+			if (useBTRS) {
+				double spq = StrictMath.sqrt(mean * q);
+				this.b = 1.15 + 2.53 * spq;
+				this.a = -0.0873 + 0.0248 * b + 0.01 * p;
+				this.c = mean + 0.5;
+				this.vr = 0.92 - 4.2 / b;
+				this.alpha = (2.83 + 5.1 / b) * spq;
+				this.logRatio = StrictMath.log(p / q);
+				this.m = (long) Math.floor((n + 1.0) * p);
+				this.h = LogFactorial.get(m) + LogFactorial.get(n - m);
+				this.qn = 0;
+				this.bound = 0;
+			} else {
+				this.qn = StrictMath.exp(n * StrictMath.log1p(-p));
+				this.bound = Math.min(n, mean + 10 * StrictMath.sqrt(mean * q + 1));
+				this.a = this.b = this.c = this.vr = this.alpha = this.logRatio = this.h = 0;
+				this.m = 0;
+			}
+		}
+
+		int next(Random random) {
+			if (p == 0) {
+				return flipped ? n : 0;
+			}
+			int result = useBTRS ? nextBTRS(random) : nextInversion(random);
+			return flipped ? n - result : result;
+		}
+
+		private int nextInversion(Random random) {
+			int x = 0;
+			double px = qn;
+			double u = random.nextDouble();
+			while (u > px) {
+				x++;
+				if (x > bound) {
+
+					// This can only happen due to rounding errors, so just start over
+					x = 0;
+					px = qn;
+					u = random.nextDouble();
+				} else {
+					u -= px;
+					px = ((n - x + 1) * p * px) / (x * q);
+				}
+			}
+			return x;
+		}
+
+		private int nextBTRS(Random random) {
+			while (true) {
+				double u = random.nextDouble() - 0.5;
+				double v = random.nextDouble();
+				double us = 0.5 - Math.abs(u);
+				long k = (long) Math.floor((2 * a / us + b) * u + c);
+				if (k < 0 || k > n) {
+					continue;
+				}
+
+				// The squeeze: most samples are accepted here
+				if (us >= 0.07 && v <= vr) {
+					return (int) k;
+				}
+				double logV = StrictMath.log(v * alpha / (a / (us * us) + b));
+				if (logV <= h - LogFactorial.get(k) - LogFactorial.get(n - k) + (k - m) * logRatio) {
+					return (int) k;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package nl.knokko.util.random.distribution;
+
+import nl.knokko.util.random.Random;
+
+/**
+ * Generates exponentially distributed doubles with the ziggurat method of Marsaglia and Tsang. The area under
+ * the density function is covered by 256 layers of equal area. Nearly all samples fall in the rectangular
+ * part of a layer, in which case a single 64-bit word of the random is enough and no logarithms or
+ * exponentials need to be computed: 8 bits of the word choose the layer and the upper 53 bits choose the
+ * position in the layer.
+ *
+ * The tables and the rare slow paths use StrictMath, so the results only depend on the state of the random
+ * and not on the machine.
+ * @author knokko
+ *
+ */
+public final class Exponential {
+
+	private static final int LAYERS = 256;
+
+	/**
+	 * The start of the tail: all samples greater than R are generated by the tail algorithm
+	 */
+	private static final double R = 7.69711747013104972;
+
+	/**
+	 * The area of every layer
+	 */
+	private static final double AREA = 3.949659822581572e-3;
+
+	/**
+	 * X[i] is the width of layer i and X[i + 1] is the width of the part of layer i that is completely
+	 * below the density function. Layer 0 is the base layer, which includes the tail.
+	 */
+	private static final double[] X = new double[LAYERS + 1];
+
+	/**
+	 * F[i] is the density at X[i]
+	 */
+	private static final double[] F = new double[LAYERS + 1];
+
+	static {
+		X[0] = AREA / density(R);
+		X[1] = R;
+		for (int index = 1; index < LAYERS - 1; index++) {
+			X[index + 1] = -StrictMath.log(AREA / X[index] + density(X[index]));
+		}
+		X[LAYERS] = 0;
+		for (int index = 0; index <= LAYERS; index++) {
+			F[index] = density(X[index]);
+		}
+	}
+
+	private static double density(double x) {
+		return StrictMath.exp(-x);
+	}
+
+	private Exponential() {}
+
+	/**
+	 * @param random The random to take the random bits from
+	 * @return an exponentially distributed double with rate 1 (and thus mean 1)
+	 */
+	public static double next(Random random) {
+		double offset = 0;
+		while (true) {
+			long bits = random.nextBits(64);
+			int layer = (int) (bits & (LAYERS - 1));
+			double x = (bits >>> 11) * 0x1.0p-53 * X[layer];
+
+			// The fast path: the point is in the part of the layer that is completely below the density
+			if (x < X[layer + 1]) {
+				return offset + x;
+			}
+
+			if (layer == 0) {
+
+				// The tail of an exponential distribution is just a shifted exponential distribution
+				offset += R;
+				continue;
+			}
+
+			// The point is in the wedge at the right of the layer, so compare it with the density
+			double y = F[layer] + random.nextDouble() * (F[layer + 1] - F[layer]);
+			if (y < density(x)) {
+				return offset + x;
+			}
+		}
+	}
+
+	/**
+	 * @param random The random to take the random bits from
+	 * @param rate The rate of the distribution, which is 1 / mean
+	 * @return an exponentially distributed double with the given rate
+	 * @throws IllegalArgumentException if rate is not positive
+	 */
+	public static double next(Random random, double rate) {
+		if (!(rate > 0))
+			throw new IllegalArgumentException("The rate must be positive, but is " + rate);
+		return next(random) / rate;
+	}
+
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with exponentially distributed doubles with
+	 * rate 1.
+	 */
+	public static void fill(Random random, double[] target, int offset, int length) {
+		int end = offset + length;
+		for (int index = offset; index < end; index++) {
+			target[index] = next(random);
+		}
+	}
+
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with exponentially distributed doubles with the
+	 * given rate.
+	 * @throws IllegalArgumentException if rate is not positive
+	 */
+	public static void fill(Random random, double[] target, int offset, int length, double rate) {
+		if (!(rate > 0))
+			throw new IllegalArgumentException("The rate must be positive, but is " + rate);
+		int end = offset + length;
+		for (int index = offset; index < end; index++) {
+			target[index] = next(random) / rate;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package nl.knokko.util.random.distribution;
+
+import nl.knokko.util.random.Random;
+
+/**
+ * Generates gamma distributed doubles with the method of Marsaglia and Tsang, which uses a normally
+ * distributed double (from the ziggurat of Gaussian) and a uniform double per attempt and accepts more
+ * than 95% of the attempts. Shapes smaller than 1 are handled by generating a sample with shape + 1 and
+ * multiplying it by U^(1 / shape).
+ *
+ * All computations use StrictMath, so the results only depend on the state of the random and not on the
+ * machine.
+ * @author knokko
+ *
+ */
+public final class Gamma {
+
+	private Gamma() {}
+
+	private static void checkParameters(double shape, double scale) {
+		if (!(shape > 0 && shape < Double.POSITIVE_INFINITY))
+			throw new IllegalArgumentException("The shape must be positive and finite, but is " + shape);
+		if (!(scale > 0 && scale < Double.POSITIVE_INFINITY))
+			throw new IllegalArgumentException("The scale must be positive and finite, but is " + scale);
+	}
+
+	/**
+	 * @param random The random to take the random bits from
+	 * @param shape The shape parameter (k or alpha) of the distribution
+	 * @param scale The scale parameter (theta) of the distribution
+	 * @return a gamma distributed double with the given shape and scale
+	 * @throws IllegalArgumentException if shape or scale is not positive and finite
+	 */
+	public static double next(Random random, double shape, double scale) {
+		checkParameters(shape, scale);
+		return scale * new Parameters(shape).next(random);
+	}
+
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with gamma distributed doubles with the given
+	 * shape and scale. The parameters of the algorithm are only computed once.
+	 * @throws IllegalArgumentException if shape or scale is not positive and finite
+	 */
+	public static void fill(Random random, double[] target, int offset, int length, double shape, double scale) {
+		checkParameters(shape, scale);
+		Parameters parameters = new Parameters(shape);
+		int end = offset + length;
+		for (int index = offset; index < end; index++) {
+			target[index] = scale * parameters.next(random);
+		}
+	}
+
+	/**
+	 * The constants of the method of Marsaglia and Tsang for a given shape, which must be positive. For
+	 * shapes below 1, the constants are computed for shape + 1.
+	 */
+	static class Parameters {
+
+		final boolean small;
+		final double inverseShape;
+		final double d, c;
+
+		Parameters(double shape) {
+			this.small = shape < 1;
+			this.inverseShape = 1 / shape;
+			this.d = (small ? shape + 1 : shape) - 1.0 / 3;
+			this.c = 1 / StrictMath.sqrt(9 * d);
+		}
+
+		/**
+		 * Generates a gamma distributed double with the shape of these parameters and scale 1
+		 */
+		double next(Random random) {
+			if (small) {
+				double u = 1.0 - random.nextDouble();
+				return nextBoosted(random) * StrictMath.pow(u, inverseShape);
+			}
+			return nextBoosted(random);
+		}
+
+		/**
+		 * Generates the natural logarithm of a gamma distributed double with the shape of these parameters
+		 * and scale 1. Unlike next(random), this doesn't underflow to 0 for very small shapes.
+		 */
+		double nextLog(Random random) {
+			if (small) {
+				double u = 1.0 - random.nextDouble();
+				return StrictMath.log(nextBoosted(random)) + StrictMath.log(u) * inverseShape;
+			}
+			return StrictMath.log(nextBoosted(random));
+		}
+
+		/**
+		 * Generates a gamma distributed double with shape d + 1/3 and scale 1
+		 */
+		private double nextBoosted(Random random) {
+			while (true) {
+				double x, v;
+				do {
+					x = Gaussian.next(random);
+					v = 1 + c * x;
+				} while (v <= 0);
+				v = v * v * v;
+				double u = 1.0 - random.nextDouble();
+				double xSquared = x * x;
+
+				// The squeeze: most samples are accepted here
+				if (u < 1 - 0.0331 * xSquared * xSquared) {
+					return d * v;
+				}
+				if (StrictMath.log(u) < 0.5 * xSquared + d * (1 - v + StrictMath.log(v))) {
+					return d * v;
+				}
+			}
+		}
+	}
+}
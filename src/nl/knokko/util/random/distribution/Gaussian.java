@@ -0,0 +1,132 @@
+package nl.knokko.util.random.distribution;
+
+import nl.knokko.util.random.Random;
+
+/**
+ * Generates normally distributed doubles with the ziggurat method of Marsaglia and Tsang. The area under the
+ * density function is covered by 128 layers of equal area. Nearly all samples fall in the rectangular part
+ * of a layer, in which case a single 64-bit word of the random is enough and no logarithms or exponentials
+ * need to be computed: 7 bits of the word choose the layer, 1 bit chooses the sign and the upper 53 bits
+ * choose the position in the layer.
+ *
+ * The tables and the rare slow paths use StrictMath, so the results only depend on the state of the random
+ * and not on the machine.
+ * @author knokko
+ *
+ */
+public final class Gaussian {
+
+	private static final int LAYERS = 128;
+
+	/**
+	 * The start of the tail: all samples greater than R are generated by the tail algorithm
+	 */
+	private static final double R = 3.442619855899;
+
+	/**
+	 * The area of every layer
+	 */
+	private static final double AREA = 9.91256303526217e-3;
+
+	/**
+	 * X[i] is the width of layer i and X[i + 1] is the width of the part of layer i that is completely
+	 * below the density function. Layer 0 is the base layer, which includes the tail.
+	 */
+	private static final double[] X = new double[LAYERS + 1];
+
+	/**
+	 * F[i] is the (unnormalized) density at X[i]
+	 */
+	private static final double[] F = new double[LAYERS + 1];
+
+	static {
+		X[0] = AREA / density(R);
+		X[1] = R;
+		for (int index = 1; index < LAYERS - 1; index++) {
+			X[index + 1] = StrictMath.sqrt(-2 * StrictMath.log(AREA / X[index] + density(X[index])));
+		}
+		X[LAYERS] = 0;
+		for (int index = 0; index <= LAYERS; index++) {
+			F[index] = density(X[index]);
+		}
+	}
+
+	private static double density(double x) {
+		return StrictMath.exp(-0.5 * x * x);
+	}
+
+	private Gaussian() {}
+
+	/**
+	 * @param random The random to take the random bits from
+	 * @return a normally distributed double with mean 0 and standard deviation 1
+	 */
+	public static double next(Random random) {
+		while (true) {
+			long bits = random.nextBits(64);
+			int layer = (int) (bits & (LAYERS - 1));
+			boolean negative = (bits & LAYERS) != 0;
+			double x = (bits >>> 11) * 0x1.0p-53 * X[layer];
+
+			// The fast path: the point is in the part of the layer that is completely below the density
+			if (x < X[layer + 1]) {
+				return negative ? -x : x;
+			}
+
+			if (layer == 0) {
+				x = nextTail(random);
+				return negative ? -x : x;
+			}
+
+			// The point is in the wedge at the right of the layer, so compare it with the density
+			double y = F[layer] + random.nextDouble() * (F[layer + 1] - F[layer]);
+			if (y < density(x)) {
+				return negative ? -x : x;
+			}
+		}
+	}
+
+	/**
+	 * Generates a sample from the tail of the distribution (greater than R) using the method of Marsaglia
+	 */
+	private static double nextTail(Random random) {
+		double x, y;
+		do {
+			x = -StrictMath.log(1.0 - random.nextDouble()) / R;
+			y = -StrictMath.log(1.0 - random.nextDouble());
+		} while (y + y < x * x);
+		return R + x;
+	}
+
+	/**
+	 * @param random The random to take the random bits from
+	 * @param mean The mean of the distribution
+	 * @param standardDeviation The standard deviation of the distribution
+	 * @return a normally distributed double with the given mean and standard deviation
+	 */
+	public static double next(Random random, double mean, double standardDeviation) {
+		return mean + standardDeviation * next(random);
+	}
+
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with normally distributed doubles with mean 0
+	 * and standard deviation 1.
+	 */
+	public static void fill(Random random, double[] target, int offset, int length) {
+		int end = offset + length;
+		for (int index = offset; index < end; index++) {
+			target[index] = next(random);
+		}
+	}
+
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with normally distributed doubles with the
+	 * given mean and standard deviation.
+	 */
+	public static void fill(Random random, double[] target, int offset, int length, double mean, double standardDeviation) {
+		int end = offset + length;
+		for (int index = offset; index < end; index++) {
+			target[index] = mean + standardDeviation * next(random);
+		}
+	}
+}
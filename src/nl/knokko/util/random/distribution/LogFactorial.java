@@ -0,0 +1,39 @@
+package nl.knokko.util.random.distribution;
+
+/**
+ * Computes the natural logarithm of factorials, which is needed by the rejection tests of the Poisson and
+ * binomial samplers. Small arguments are looked up in a table, larger arguments use the Stirling series.
+ * @author knokko
+ *
+ */
+final class LogFactorial {
+
+	private static final int TABLE_SIZE = 256;
+
+	private static final double HALF_LOG_2_PI = 0.5 * StrictMath.log(2 * Math.PI);
+
+	private static final double[] TABLE = new double[TABLE_SIZE];
+
+	static {
+		for (int k = 1; k < TABLE_SIZE; k++) {
+			TABLE[k] = TABLE[k - 1] + StrictMath.log(k);
+		}
+	}
+
+	private LogFactorial() {}
+
+	/**
+	 * @param k A non-negative number
+	 * @return ln(k!)
+	 */
+	static double get(long k) {
+		if (k < TABLE_SIZE) {
+			return TABLE[(int) k];
+		}
+		double n = k + 1;
+		double inverse = 1.0 / n;
+		double inverseSquared = inverse * inverse;
+		return (n - 0.5) * StrictMath.log(n) - n + HALF_LOG_2_PI
+				+ inverse * (1.0 / 12 - inverseSquared * (1.0 / 360 - inverseSquared / 1260));
+	}
+}
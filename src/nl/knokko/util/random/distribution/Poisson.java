@@ -0,0 +1,127 @@
+package nl.knokko.util.random.distribution;
+
+import nl.knokko.util.random.Random;
+
+/**
+ * Generates Poisson distributed ints. Small means (below 10) use the multiplication method of Knuth, which
+ * needs about mean + 1 uniform doubles per sample. Larger means use the transformed rejection method with
+ * squeeze (PTRS) of Hormann, which needs about 2 uniform doubles per sample no matter how large the mean is.
+ *
+ * All computations use StrictMath, so the results only depend on the state of the random and not on the
+ * machine.
+ * @author knokko
+ *
+ */
+public final class Poisson {
+
+	/**
+	 * Means below this threshold use the method of Knuth, larger means use PTRS
+	 */
+	private static final double PTRS_THRESHOLD = 10;
+
+	private Poisson() {}
+
+	private static void checkMean(double mean) {
+		if (!(mean >= 0 && mean < Integer.MAX_VALUE))
+			throw new IllegalArgumentException("The mean must be between 0 and Integer.MAX_VALUE, but is " + mean);
+	}
+
+	/**
+	 * @param random The random to take the random bits from
+	 * @param mean The mean of the distribution
+	 * @return a Poisson distributed int with the given mean. Since the result must fit in an int, the
+	 * distribution is truncated at Integer.MAX_VALUE.
+	 * @throws IllegalArgumentException if the mean is negative or too large
+	 */
+	public static int next(Random random, double mean) {
+		checkMean(mean);
+		if (mean < PTRS_THRESHOLD) {
+			return nextKnuth(random, StrictMath.exp(-mean));
+		} else {
+			return nextPTRS(random, new Parameters(mean));
+		}
+	}
+
+	/**
+	 * Fills target[offset] until target[offset + length - 1] with Poisson distributed ints with the given
+	 * mean. The parameters of the algorithm are only computed once.
+	 * @throws IllegalArgumentException if the mean is negative or too large
+	 */
+	public static void fill(Random random, int[] target, int offset, int length, double mean) {
+		checkMean(mean);
+		int end = offset + length;
+		if (mean < PTRS_THRESHOLD) {
+			double limit = StrictMath.exp(-mean);
+			for (int index = offset; index < end; index++) {
+				target[index] = nextKnuth(random, limit);
+			}
+		} else {
+			Parameters parameters = new Parameters(mean);
+			for (int index = offset; index < end; index++) {
+				target[index] = nextPTRS(random, parameters);
+			}
+		}
+	}
+
+	/**
+	 * @param limit e^-mean
+	 */
+	private static int nextKnuth(Random random, double limit) {
+		int result = 0;
+		double product = 1.0 - random.nextDouble();
+		while (product > limit) {
+			result++;
+			product *= 1.0 - random.nextDouble();
+		}
+		return result;
+	}
+
+	private static int nextPTRS(Random random, Parameters p) {
+		while (true) {
+			double u = random.nextDouble() - 0.5;
+			double v = random.nextDouble();
+			double us = 0.5 - Math.abs(u);
+			long k = (long) Math.floor((2 * p.a / us + p.b) * u + p.mean + 0.43);
+
+			// Results that don't fit in an int are rejected, which only matters for means within a few
+			// standard deviations of Integer.MAX_VALUE
+			if (k > Integer.MAX_VALUE) {
+				continue;
+			}
+
+			// The squeeze: most samples are accepted here
+			if (us >= 0.07 && v <= p.vr) {
+				return (int) k;
+			}
+			if (k < 0 || (us < 0.013 && v > us)) {
+				continue;
+			}
+			if (StrictMath.log(v) + p.logInverseAlpha - StrictMath.log(p.a / (us * us) + p.b)
+					<= -p.mean + k * p.logMean - LogFactorial.get(k)) {
+				return (int) k;
+			}
+		}
+	}
+
+	/**
+	 * The constants of PTRS for a given mean
+	 */
+	private static class Parameters {
+
+		final double mean;
+		final double logMean;
+		final double a, b;
+		final double logInverseAlpha;
+		final double vr;
+
+		Parameters(double mean) {
+			this.mean = mean;
+			this.logMean = StrictMath.log(mean);
+			double squareRoot = StrictMath.sqrt(mean);
+			this.b = 0.931 + 2.53 * squareRoot;
+			this.a = -0.059 + 0.02483 * b;
+			this.logInverseAlpha = StrictMath.log(1.1239 + 1.1328 / (b - 3.4));
+			this.vr = 0.9277 - 3.6224 / (b - 2);
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package nl.knokko.util.random.distribution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collector;
+
+import nl.knokko.util.random.Random;
+
+/**
+ * Chooses a uniformly random sample of at most capacity elements from a sequence of elements whose length
+ * is not known in advance, in a single pass and with O(capacity) memory. Every subset of the elements with
+ * the size of the sample has exactly the same chance to be the sample.
+ *
+ * This class uses algorithm L of Li, which doesn't need a random draw for every element: it computes how
+ * many elements can be skipped before the next element that will be put in the sample. For a sequence of n
+ * elements, only O(capacity * log(n / capacity)) random numbers are needed.
+ *
+ * Reservoirs can be merged, which makes them usable for parallel streams: see collector. A Reservoir is
+ * not thread safe.
+ * @author knokko
+ *
+ */
+public class Reservoir<T> {
+
+	/**
+	 * Creates a Collector that collects a random sample of at most capacity elements of a stream. When the
+	 * stream is parallel, every part of the stream will get its own reservoir with a random that is split
+	 * from the given random, and the reservoirs will be merged afterwards. The given random is only used to
+	 * split, so it will not be used by multiple threads at the same time. The result of a parallel stream
+	 * depends on the way the stream is split, so it will not always be the same.
+	 *
+	 * @param capacity The maximum size of the sample
+	 * @param random The random to split the randoms of the reservoirs from
+	 * @return a Collector that collects a random sample of the stream into a List
+	 */
+	public static <T> Collector<T, Reservoir<T>, List<T>> collector(int capacity, Random random) {
+		return Collector.of(() -> {
+			Random child;
+			synchronized (random) {
+				child = random.split();
+			}
+			return new Reservoir<>(capacity, child);
+		}, Reservoir::add, Reservoir::merge, Reservoir::getSample);
+	}
+
+	/**
+	 * Chooses a random sample of at most capacity elements of the iterator, in a single pass.
+	 *
+	 * @param iterator The iterator over the elements to sample from
+	 * @param capacity The maximum size of the sample
+	 * @param random The random to take the random bits from
+	 * @return a List containing the sample
+	 */
+	public static <T> List<T> sample(Iterator<? extends T> iterator, int capacity, Random random) {
+		Reservoir<T> reservoir = new Reservoir<>(capacity, random);
+		reservoir.addAll(iterator);
+		return reservoir.getSample();
+	}
+
+	private final Random random;
+	private final Object[] sample;
+	private int size;
+
+	/**
+	 * The number of elements that have been added
+	 */
+	private long count;
+
+	/**
+	 * The (random) threshold of algorithm L: the largest random key of the elements in the sample
+	 */
+	private double threshold;
+
+	/**
+	 * The value of count at which the next element will be put in the sample
+	 */
+	private long nextIndex;
+
+	/**
+	 * @param capacity The maximum size of the sample
+	 * @param random The random to take the random bits from
+	 * @throws IllegalArgumentException if capacity is not positive
+	 */
+	public Reservoir(int capacity, Random random) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("The capacity must be positive, but is " + capacity);
+		this.random = random;
+		this.sample = new Object[capacity];
+	}
+
+	/**
+	 * Offers an element to this reservoir. It will be put in the sample with the right chance.
+	 *
+	 * @param element The element
+	 */
+	public void add(T element) {
+		if (size < sample.length) {
+			sample[size++] = element;
+			count++;
+			if (size == sample.length) {
+				threshold = StrictMath.exp(StrictMath.log(nextUniform()) / sample.length);
+				nextIndex = count + nextSkip();
+			}
+			return;
+		}
+		if (count == nextIndex) {
+			sample[random.nextInt(sample.length)] = element;
+			threshold *= StrictMath.exp(StrictMath.log(nextUniform()) / sample.length);
+			nextIndex = count + 1 + nextSkip();
+		}
+		count++;
+	}
+
+	/**
+	 * Offers all remaining elements of the iterator to this reservoir.
+	 *
+	 * @param iterator The iterator over the elements
+	 */
+	public void addAll(Iterator<? extends T> iterator) {
+		while (iterator.hasNext()) {
+			add(iterator.next());
+		}
+	}
+
+	/**
+	 * @return a random double in (0, 1]
+	 */
+	private double nextUniform() {
+		return 1.0 - random.nextDouble();
+	}
+
+	/**
+	 * @return the number of elements that should be skipped before the next element goes into the sample
+	 */
+	private long nextSkip() {
+		double skip = Math.floor(StrictMath.log(nextUniform()) / StrictMath.log1p(-threshold));
+		return skip < Long.MAX_VALUE / 2 ? (long) skip : Long.MAX_VALUE / 2;
+	}
+
+	/**
+	 * Merges the other reservoir into this reservoir. Afterwards, the sample of this reservoir will be a
+	 * uniformly random sample of all elements that were added to this reservoir or to the other reservoir.
+	 * The other reservoir should not be used anymore.
+	 *
+	 * @param other The reservoir to merge into this one
+	 * @return this reservoir
+	 */
+	public Reservoir<T> merge(Reservoir<T> other) {
+		long totalCount = count + other.count;
+		if (totalCount <= sample.length) {
+			System.arraycopy(other.sample, 0, sample, size, other.size);
+			size += other.size;
+			count = totalCount;
+			if (size == sample.length) {
+				threshold = StrictMath.exp(StrictMath.log(nextUniform()) / sample.length);
+				nextIndex = count + nextSkip();
+			}
+			return this;
+		}
+
+		// Simulate drawing without replacement from the union of both populations: the next element comes
+		// from a population with a chance proportional to the number of its remaining elements. A random
+		// remaining element of a sample is a random remaining element of its population.
+		Object[] first = Arrays.copyOf(sample, size);
+		Object[] second = Arrays.copyOf(other.sample, other.size);
+		int firstRemaining = first.length;
+		int secondRemaining = second.length;
+		long firstPopulation = count;
+		long secondPopulation = other.count;
+		for (int index = 0; index < sample.length; index++) {
+			if (random.nextLong(firstPopulation + secondPopulation) < firstPopulation) {
+				int chosen = random.nextInt(firstRemaining--);
+				sample[index] = first[chosen];
+				first[chosen] = first[firstRemaining];
+				firstPopulation--;
+			} else {
+				int chosen = random.nextInt(secondRemaining--);
+				sample[index] = second[chosen];
+				second[chosen] = second[secondRemaining];
+				secondPopulation--;
+			}
+		}
+		size = sample.length;
+		count = totalCount;
+
+		// The largest key of the capacity smallest keys of count uniform keys has a beta distribution
+		threshold = Beta.next(random, sample.length, count - sample.length + 1);
+		nextIndex = count + nextSkip();
+		return this;
+	}
+
+	/**
+	 * @return the number of elements that have been offered to this reservoir
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return a new list containing the current sample. The order of the elements is not random.
+	 */
+	public List<T> getSample() {
+		List<T> result = new ArrayList<>(size);
+		for (int index = 0; index < size; index++) {
+			@SuppressWarnings("unchecked")
+			T element = (T) sample[index];
+			result.add(element);
+		}
+		return result;
+	}
+}
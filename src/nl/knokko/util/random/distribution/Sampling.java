@@ -0,0 +1,277 @@
+package nl.knokko.util.random.distribution;
+
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+
+import nl.knokko.util.random.Random;
+
+/**
+ * Shuffles arrays and lists and chooses distinct random indices, without allocating anything per draw.
+ *
+ * The shuffles use the Fisher-Yates algorithm, which needs a random index in [0, i] for every i from the
+ * length - 1 down to 1. Instead of generating these indices one by one, 2 indices (for bounds i + 1 and i)
+ * are generated from a single 64-bit word with the batched multiply-shift method of Brackett-Rozinsky and
+ * Lemire, which halves the number of words that are taken from the random. Like Random.nextInt(int), this
+ * method is exactly uniform: the rare words that would cause a bias are rejected.
+ * @author knokko
+ *
+ */
+public final class Sampling {
+
+	/**
+	 * The largest number of ints that choose can choose at once. The ints that were chosen so far are kept
+	 * in a hash set that is at most half full, and the size of that set is at most 2^30.
+	 */
+	public static final int MAX_CHOOSE_AMOUNT = 1 << 29;
+
+	private Sampling() {}
+
+	/**
+	 * Generates a random int in [0, bound1> and a random int in [0, bound2> from a single 64-bit word (in
+	 * nearly all cases). The results are returned packed in a long: the first int in the upper 32 bits and
+	 * the second int in the lower 32 bits. The product of the bounds must be smaller than 2^63.
+	 */
+	static long nextIntPair(Random random, long bound1, long bound2) {
+		long product = bound1 * bound2;
+		long bits = random.nextBits(64);
+		long first = unsignedMultiplyHigh(bits, bound1);
+		long rest = bits * bound1;
+		long second = unsignedMultiplyHigh(rest, bound2);
+		long low = rest * bound2;
+		if (Long.compareUnsigned(low, product) < 0) {
+			long threshold = Long.remainderUnsigned(-product, product);
+			while (Long.compareUnsigned(low, threshold) < 0) {
+				bits = random.nextBits(64);
+				first = unsignedMultiplyHigh(bits, bound1);
+				rest = bits * bound1;
+				second = unsignedMultiplyHigh(rest, bound2);
+				low = rest * bound2;
+			}
+		}
+		return first << 32 | second;
+	}
+
+	private static long unsignedMultiplyHigh(long x, long y) {
+		return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+	}
+
+	/**
+	 * Shuffles the array in place. Every permutation has exactly the same chance.
+	 */
+	public static void shuffle(Random random, int[] array) {
+		int index = array.length - 1;
+		for (; index >= 2; index -= 2) {
+			long pair = nextIntPair(random, index + 1, index);
+			swap(array, index, (int) (pair >>> 32));
+			swap(array, index - 1, (int) pair);
+		}
+		if (index == 1) {
+			swap(array, 1, random.nextInt(2));
+		}
+	}
+
+	private static void swap(int[] array, int index1, int index2) {
+		int temp = array[index1];
+		array[index1] = array[index2];
+		array[index2] = temp;
+	}
+
+	/**
+	 * Shuffles the array in place. Every permutation has exactly the same chance.
+	 */
+	public static void shuffle(Random random, long[] array) {
+		int index = array.length - 1;
+		for (; index >= 2; index -= 2) {
+			long pair = nextIntPair(random, index + 1, index);
+			swap(array, index, (int) (pair >>> 32));
+			swap(array, index - 1, (int) pair);
+		}
+		if (index == 1) {
+			swap(array, 1, random.nextInt(2));
+		}
+	}
+
+	private static void swap(long[] array, int index1, int index2) {
+		long temp = array[index1];
+		array[index1] = array[index2];
+		array[index2] = temp;
+	}
+
+	/**
+	 * Shuffles the array in place. Every permutation has exactly the same chance.
+	 */
+	public static void shuffle(Random random, double[] array) {
+		int index = array.length - 1;
+		for (; index >= 2; index -= 2) {
+			long pair = nextIntPair(random, index + 1, index);
+			swap(array, index, (int) (pair >>> 32));
+			swap(array, index - 1, (int) pair);
+		}
+		if (index == 1) {
+			swap(array, 1, random.nextInt(2));
+		}
+	}
+
+	private static void swap(double[] array, int index1, int index2) {
+		double temp = array[index1];
+		array[index1] = array[index2];
+		array[index2] = temp;
+	}
+
+	/**
+	 * Shuffles the array in place. Every permutation has exactly the same chance.
+	 */
+	public static void shuffle(Random random, Object[] array) {
+		int index = array.length - 1;
+		for (; index >= 2; index -= 2) {
+			long pair = nextIntPair(random, index + 1, index);
+			swap(array, index, (int) (pair >>> 32));
+			swap(array, index - 1, (int) pair);
+		}
+		if (index == 1) {
+			swap(array, 1, random.nextInt(2));
+		}
+	}
+
+	private static void swap(Object[] array, int index1, int index2) {
+		Object temp = array[index1];
+		array[index1] = array[index2];
+		array[index2] = temp;
+	}
+
+	/**
+	 * Shuffles the list in place. Every permutation has exactly the same chance. Just like
+	 * Collections.shuffle, lists that don't implement RandomAccess are copied to an array first, which is
+	 * shuffled and then written back to the list.
+	 */
+	public static <T> void shuffle(Random random, List<T> list) {
+		if (list instanceof RandomAccess) {
+			int index = list.size() - 1;
+			for (; index >= 2; index -= 2) {
+				long pair = nextIntPair(random, index + 1, index);
+				swap(list, index, (int) (pair >>> 32));
+				swap(list, index - 1, (int) pair);
+			}
+			if (index == 1) {
+				swap(list, 1, random.nextInt(2));
+			}
+		} else {
+			Object[] array = list.toArray();
+			shuffle(random, array);
+			ListIterator<T> iterator = list.listIterator();
+			for (Object element : array) {
+				iterator.next();
+				@SuppressWarnings("unchecked")
+				T typed = (T) element;
+				iterator.set(typed);
+			}
+		}
+	}
+
+	private static <T> void swap(List<T> list, int index1, int index2) {
+		list.set(index2, list.set(index1, list.get(index2)));
+	}
+
+	/**
+	 * Chooses amount distinct random ints in the range [0, bound> using the algorithm of Floyd. Every subset
+	 * of the given size has exactly the same chance to be chosen. This only needs O(amount) memory, no
+	 * matter how large the bound is. Note that the order of the result is <b>not</b> random: shuffle it if a
+	 * random order is needed.
+	 *
+	 * @param random The random to take the random bits from
+	 * @param bound The bound of the ints to choose
+	 * @param amount The number of ints to choose
+	 * @return an array containing the chosen ints
+	 * @throws IllegalArgumentException if amount is negative, larger than bound or larger than MAX_CHOOSE_AMOUNT
+	 */
+	public static int[] choose(Random random, int bound, int amount) {
+		checkChooseAmount(bound, amount);
+		int[] result = new int[amount];
+		choose(random, bound, result, 0, amount);
+		return result;
+	}
+
+	/**
+	 * Chooses length distinct random ints in the range [0, bound> using the algorithm of Floyd, and stores
+	 * them in target[offset] until target[offset + length - 1]. Every subset of the given size has exactly
+	 * the same chance to be chosen. This only needs O(length) memory, no matter how large the bound is. Note
+	 * that the order of the result is <b>not</b> random: shuffle it if a random order is needed.
+	 *
+	 * @throws IllegalArgumentException if length is negative, larger than bound or larger than MAX_CHOOSE_AMOUNT
+	 */
+	public static void choose(Random random, int bound, int[] target, int offset, int length) {
+		checkChooseAmount(bound, length);
+		IntHashSet chosen = new IntHashSet(length);
+		int count = 0;
+		int candidate = bound - length;
+
+		// Floyd: for every candidate j from bound - length until bound - 1, choose a random t in [0, j]
+		// and add t, or j when t was already chosen
+		for (; candidate < bound - 1; candidate += 2) {
+			long pair = nextIntPair(random, candidate + 1, candidate + 2);
+			int t = (int) (pair >>> 32);
+			target[offset + count++] = chosen.add(t) ? t : addNew(chosen, candidate);
+			t = (int) pair;
+			target[offset + count++] = chosen.add(t) ? t : addNew(chosen, candidate + 1);
+		}
+		if (candidate < bound) {
+			int t = random.nextInt(candidate + 1);
+			target[offset + count++] = chosen.add(t) ? t : addNew(chosen, candidate);
+		}
+	}
+
+	private static void checkChooseAmount(int bound, int amount) {
+		if (amount < 0 || amount > bound)
+			throw new IllegalArgumentException("Can't choose " + amount + " distinct ints below " + bound);
+		if (amount > MAX_CHOOSE_AMOUNT)
+			throw new IllegalArgumentException("Can't choose more than " + MAX_CHOOSE_AMOUNT + " ints, but " + amount + " were requested");
+	}
+
+	private static int addNew(IntHashSet set, int value) {
+		set.add(value);
+		return value;
+	}
+
+	/**
+	 * A minimal open addressing hash set of non-negative ints, so that choose doesn't need to box its ints
+	 */
+	private static class IntHashSet {
+
+		private static final int MAX_CAPACITY = 1 << 30;
+
+		/**
+		 * The stored values + 1, where 0 indicates an empty slot
+		 */
+		private final int[] slots;
+		private final int shift;
+
+		/**
+		 * @param expectedSize The maximum number of values, at most MAX_CHOOSE_AMOUNT
+		 */
+		IntHashSet(int expectedSize) {
+
+			// At least twice the expected size, so the set is never more than half full
+			int capacity = (int) Math.min(Long.highestOneBit(Math.max(expectedSize, 1) * 2L - 1) << 1, MAX_CAPACITY);
+			slots = new int[capacity];
+			shift = 32 - Integer.numberOfTrailingZeros(capacity);
+		}
+
+		/**
+		 * @return true if the value was added, false if it was already in the set
+		 */
+		boolean add(int value) {
+			int stored = value + 1;
+			int mask = slots.length - 1;
+			int slot = (stored * 0x9E3779B9) >>> shift;
+			while (slots[slot] != 0) {
+				if (slots[slot] == stored) {
+					return false;
+				}
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = stored;
+			return true;
+		}
+	}
+}